@@ -0,0 +1,759 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * 
+ * Compiles FXML files into Java classes which build the same scene graph
+ * with plain constructor and setter calls, so screens can be created without
+ * FXMLLoader's XML parsing and reflection.
+ * 
+ * Types are resolved by reflection on the JavaFX classes available to the
+ * build. Controllers are not compiled yet when this runs, so their @FXML
+ * fields, handler methods and initialize() are found by scanning their
+ * source and that of their superclasses, which must be in the same package.
+ * 
+ * Only the common subset of FXML is handled: instance elements, property
+ * elements, attributes, static properties, fx:id, fx:constant, fx:value,
+ * location resolution and #handler references. Files using anything else
+ * (fx:include, fx:define, $ bindings, % resources, scripts...) are skipped
+ * and keep loading through FXMLLoader at runtime.
+ *
+ * @author Heath Leach
+ */
+public class FxmlCompiler {
+    
+    private static final String FX_NS_PREFIX = "fx:";
+    private static final String INDEX_CLASS = "CompiledScreenIndex";
+    private static final String SCREEN_INTERFACE = "CompiledScreen";
+    
+    private final File resourceDir;
+    private final File sourceDir;
+    private final File outputDir;
+    private final String packageName;
+    private final Map<String, String> controllers;
+    private final ClassLoader loader;
+    
+    private static class UnsupportedFxmlException extends Exception {
+        UnsupportedFxmlException(String message) {
+            super(message);
+        }
+    }
+    
+    // The @FXML members of a controller, found in its source.
+    private static class ControllerInfo {
+        final String className;
+        final HashMap<String, Boolean> fields = new HashMap<>();       // name -> accessible
+        final HashMap<String, Integer> methods = new HashMap<>();      // name -> parameter count, -1 if private
+        boolean initialize = false;     // Has a no-argument initialize() FXMLLoader would call
+        ControllerInfo(String className) {
+            this.className = className;
+        }
+    }
+    
+    // State for compiling one file.
+    private class Unit {
+        final String resource;
+        final String className;
+        final ControllerInfo controller;
+        final ArrayList<String> imports = new ArrayList<>();
+        final StringBuilder body = new StringBuilder();
+        int next = 0;
+        Unit(String resource, String className, ControllerInfo controller) {
+            this.resource = resource;
+            this.className = className;
+            this.controller = controller;
+        }
+        String newVar() {
+            return "n" + next++;
+        }
+        void line(String s) {
+            body.append("        ").append(s).append("\n");
+        }
+    }
+    
+    /**
+     * 
+     * @param resourceDir   Root of the resources holding the FXML files.
+     * @param sourceDir     Root of the Java sources holding the controllers.
+     * @param outputDir     Directory to write generated sources to.
+     * @param packageName   Package of the generated classes, must hold CompiledScreen.
+     * @param controllers   Controller class names keyed by FXML file name, for
+     *                      files which do not name one with fx:controller.
+     * @param classpath     Jars holding JavaFX, if the build JVM does not expose it.
+     * @throws IOException  If the class path is invalid.
+     */
+    public FxmlCompiler(File resourceDir, File sourceDir, File outputDir, String packageName,
+            Map<String, String> controllers, Collection<File> classpath) throws IOException {
+        this.resourceDir = resourceDir;
+        this.sourceDir = sourceDir;
+        this.outputDir = outputDir;
+        this.packageName = packageName;
+        this.controllers = controllers;
+        
+        ArrayList<URL> urls = new ArrayList<>();
+        for (File f : classpath)
+            urls.add(f.toURI().toURL());
+        this.loader = new URLClassLoader(urls.toArray(new URL[urls.size()]), FxmlCompiler.class.getClassLoader());
+    }
+    
+    /**
+     * 
+     * Compile every FXML file under the resource directory and write the
+     * index the runtime uses to find them.
+     * 
+     * @return              Number of files compiled.
+     * @throws Exception    If a file cannot be read or written.
+     */
+    public int compile() throws Exception {
+        File packageDir = new File(outputDir, packageName.replace('.', File.separatorChar));
+        TreeMap<String, String> compiled = new TreeMap<>();
+        
+        if (!packageDir.isDirectory() && !packageDir.mkdirs())
+            throw new IOException("Cannot create " + packageDir);
+        
+        for (File f : findFxml(resourceDir, new ArrayList<>())) {
+            String resource = "/" + resourceDir.toURI().relativize(f.toURI()).getPath();
+            String className = "Compiled" + resource.substring(1, resource.length() - ".fxml".length())
+                    .replaceAll("[^A-Za-z0-9]", "_");
+            try {
+                String source = compileFile(f, resource, className);
+                Files.write(new File(packageDir, className + ".java").toPath(), 
+                        source.getBytes(StandardCharsets.UTF_8));
+                compiled.put(resource, className);
+            } catch (UnsupportedFxmlException ex) {
+                System.out.println("FxmlCompiler: " + resource + " left to FXMLLoader, " + ex.getMessage());
+            }
+        }
+        
+        writeIndex(new File(packageDir, INDEX_CLASS + ".java"), compiled);
+        return compiled.size();
+    }
+    
+    private static List<File> findFxml(File dir, List<File> found) {
+        File[] files = dir.listFiles();
+        
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory())
+                    findFxml(f, found);
+                else if (f.getName().endsWith(".fxml"))
+                    found.add(f);
+            }
+        }
+        return found;
+    }
+    
+    private void writeIndex(File f, Map<String, String> compiled) throws IOException {
+        try (PrintWriter out = new PrintWriter(f, "UTF-8")) {
+            out.println("// Generated by FxmlCompiler. Do not edit.");
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("public final class " + INDEX_CLASS 
+                    + " implements java.util.function.Function<String, " + SCREEN_INTERFACE + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + SCREEN_INTERFACE + " apply(String resource) {");
+            out.println("        switch (resource) {");
+            for (Map.Entry<String, String> e : compiled.entrySet()) {
+                out.println("            case " + quote(e.getKey()) + ":");
+                out.println("                return new " + e.getValue() + "();");
+            }
+            out.println("            default:");
+            out.println("                return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+    
+    private String compileFile(File f, String resource, String className) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(false);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document doc = builder.parse(f);
+        Element root = doc.getDocumentElement();
+        
+        String controllerClass = root.hasAttribute(FX_NS_PREFIX + "controller") 
+                ? root.getAttribute(FX_NS_PREFIX + "controller") : controllers.get(f.getName());
+        ControllerInfo controller = controllerClass == null ? null : scanController(controllerClass);
+        Unit unit = new Unit(resource, className, controller);
+        
+        NodeList nodes = doc.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof ProcessingInstruction) {
+                ProcessingInstruction pi = (ProcessingInstruction) nodes.item(i);
+                if (pi.getTarget().equals("import"))
+                    unit.imports.add(pi.getData().trim());
+                else
+                    throw new UnsupportedFxmlException("processing instruction " + pi.getTarget());
+            }
+        }
+        if (!unit.imports.contains("java.lang.*"))
+            unit.imports.add("java.lang.*");
+        
+        if (root.getTagName().equals(FX_NS_PREFIX + "root"))
+            throw new UnsupportedFxmlException("fx:root");
+        
+        // ScreenLoader hands screens back as panes.
+        Class<?> pane = Class.forName("javafx.scene.layout.Pane", false, loader);
+        if (!pane.isAssignableFrom(resolve(unit, root.getTagName())))
+            throw new UnsupportedFxmlException("root " + root.getTagName() + " is not a Pane");
+        
+        String rootVar = instance(unit, root);
+        
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated from ").append(resource).append(" by FxmlCompiler. Do not edit.\n");
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("public final class ").append(className).append(" implements ").append(SCREEN_INTERFACE).append(" {\n\n");
+        out.append("    @Override\n");
+        out.append("    public javafx.scene.Node create(Object controller) {\n");
+        if (controller != null) {
+            out.append("        if (!(controller instanceof ").append(controller.className).append("))\n");
+            out.append("            return null;\n");
+            out.append("        ").append(controller.className).append(" c = (")
+               .append(controller.className).append(") controller;\n");
+        }
+        out.append(unit.body);
+        if (controller != null) {
+            out.append("        if (controller instanceof javafx.fxml.Initializable)\n");
+            out.append("            ((javafx.fxml.Initializable) controller).initialize(")
+               .append(className).append(".class.getResource(").append(quote(resource)).append("), null);\n");
+            if (controller.initialize) {
+                out.append("        else\n");
+                out.append("            c.initialize();\n");
+            }
+        }
+        out.append("        return ").append(rootVar).append(";\n");
+        out.append("    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+    
+    /**
+     * Emit code creating an instance element and everything inside it.
+     * 
+     * @return  Name of the variable holding the instance.
+     */
+    private String instance(Unit unit, Element e) throws Exception {
+        String tag = e.getTagName();
+        
+        if (tag.startsWith(FX_NS_PREFIX))
+            throw new UnsupportedFxmlException(tag);
+        
+        Class<?> type = resolve(unit, tag);
+        String var = unit.newVar();
+        String typeName = type.getCanonicalName();
+        
+        if (e.hasAttribute(FX_NS_PREFIX + "constant")) {
+            type.getField(e.getAttribute(FX_NS_PREFIX + "constant"));
+            unit.line(typeName + " " + var + " = " + typeName + "." + e.getAttribute(FX_NS_PREFIX + "constant") + ";");
+            return var;
+        }
+        
+        String value = e.hasAttribute(FX_NS_PREFIX + "value") ? e.getAttribute(FX_NS_PREFIX + "value") 
+                : (e.hasAttribute("value") && !hasNoArgConstructor(type) ? e.getAttribute("value") : null);
+        if (value != null) {
+            unit.line(typeName + " " + var + " = " + valueOf(unit, type, value) + ";");
+            return var;
+        }
+        
+        if (!hasNoArgConstructor(type))
+            throw new UnsupportedFxmlException(typeName + " has no default constructor");
+        unit.line(typeName + " " + var + " = new " + typeName + "();");
+        
+        NodeList children = e.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element) {
+                Element ce = (Element) child;
+                String ctag = ce.getTagName();
+                if (ctag.startsWith(FX_NS_PREFIX)) {
+                    throw new UnsupportedFxmlException(ctag);
+                } else if (Character.isLowerCase(ctag.charAt(0))) {
+                    propertyElement(unit, var, type, ce);
+                } else if (ctag.contains(".") && Character.isLowerCase(ctag.charAt(ctag.lastIndexOf('.') + 1))) {
+                    throw new UnsupportedFxmlException("static property element " + ctag);
+                } else {
+                    String property = defaultProperty(type);
+                    if (property == null)
+                        throw new UnsupportedFxmlException(typeName + " has no default property");
+                    addToProperty(unit, var, type, property, instance(unit, ce), resolve(unit, ctag));
+                }
+            } else if (child.getNodeType() == Node.TEXT_NODE && !child.getTextContent().trim().isEmpty()) {
+                throw new UnsupportedFxmlException("text content in " + tag);
+            } else if (child.getNodeType() == Node.PROCESSING_INSTRUCTION_NODE) {
+                throw new UnsupportedFxmlException("processing instruction in " + tag);
+            }
+        }
+        
+        // Like FXMLLoader, properties are applied once the children are in place.
+        NamedNodeMap attrs = e.getAttributes();
+        boolean hasId = false;
+        for (int i = 0; i < attrs.getLength(); i++) {
+            Attr a = (Attr) attrs.item(i);
+            String name = a.getName();
+            if (name.equals("xmlns") || name.startsWith("xmlns:") || name.equals(FX_NS_PREFIX + "controller"))
+                continue;
+            if (name.equals("id"))
+                hasId = true;
+            if (name.equals(FX_NS_PREFIX + "id")) {
+                inject(unit, var, a.getValue());
+            } else if (name.startsWith(FX_NS_PREFIX)) {
+                throw new UnsupportedFxmlException(name);
+            } else if (name.contains(".")) {
+                staticProperty(unit, var, type, name, a.getValue());
+            } else if (name.startsWith("on") && a.getValue().startsWith("#")) {
+                handler(unit, var, type, name, a.getValue().substring(1));
+            } else {
+                property(unit, var, type, name, a.getValue());
+            }
+        }
+        
+        // Like FXMLLoader, fx:id doubles as the node id unless one is given.
+        if (e.hasAttribute(FX_NS_PREFIX + "id") && !hasId && findSetter(type, "id", String.class) != null)
+            unit.line(var + ".setId(" + quote(e.getAttribute(FX_NS_PREFIX + "id")) + ");");
+        
+        return var;
+    }
+    
+    private void propertyElement(Unit unit, String var, Class<?> type, Element e) throws Exception {
+        String property = e.getTagName();
+        NodeList children = e.getChildNodes();
+        
+        if (e.getAttributes().getLength() > 0)
+            throw new UnsupportedFxmlException("attributes on property element " + property);
+        
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element) {
+                Element ce = (Element) child;
+                addToProperty(unit, var, type, property, instance(unit, ce), resolve(unit, ce.getTagName()));
+            } else if (child.getNodeType() == Node.TEXT_NODE && !child.getTextContent().trim().isEmpty()) {
+                property(unit, var, type, property, child.getTextContent().trim());
+            }
+        }
+    }
+    
+    private void addToProperty(Unit unit, String var, Class<?> type, String property, String value, Class<?> valueType) 
+            throws Exception {
+        Method getter = findGetter(type, property);
+        
+        if (getter != null && List.class.isAssignableFrom(getter.getReturnType())) {
+            Class<?> elementType = listElementType(getter);
+            if (elementType == String.class && valueType == URL.class)
+                value = value + ".toExternalForm()";
+            else if (elementType != null && !elementType.isAssignableFrom(valueType))
+                throw new UnsupportedFxmlException(valueType.getName() + " added to " + property);
+            unit.line(var + "." + getter.getName() + "().add(" + value + ");");
+            return;
+        }
+        
+        Method setter = findSetter(type, property, valueType);
+        if (setter == null)
+            throw new UnsupportedFxmlException("no property " + property + " on " + type.getName());
+        unit.line(var + "." + setter.getName() + "(" + value + ");");
+    }
+    
+    private void property(Unit unit, String var, Class<?> type, String name, String value) throws Exception {
+        Method setter = findSetter(type, name, null);
+        
+        if (setter != null) {
+            unit.line(var + "." + setter.getName() + "(" + literal(unit, setter.getParameterTypes()[0], value) + ");");
+            return;
+        }
+        
+        Method getter = findGetter(type, name);
+        if (getter != null && List.class.isAssignableFrom(getter.getReturnType()) 
+                && listElementType(getter) == String.class) {
+            for (String item : value.split(","))
+                unit.line(var + "." + getter.getName() + "().add(" + literal(unit, String.class, item.trim()) + ");");
+            return;
+        }
+        
+        throw new UnsupportedFxmlException("no property " + name + " on " + type.getName());
+    }
+    
+    private void staticProperty(Unit unit, String var, Class<?> type, String name, String value) throws Exception {
+        int dot = name.lastIndexOf('.');
+        Class<?> owner = resolve(unit, name.substring(0, dot));
+        String setterName = "set" + capitalize(name.substring(dot + 1));
+        
+        for (Method m : owner.getMethods()) {
+            if (m.getName().equals(setterName) && Modifier.isStatic(m.getModifiers()) 
+                    && m.getParameterTypes().length == 2 && m.getParameterTypes()[0].isAssignableFrom(type)) {
+                unit.line(owner.getCanonicalName() + "." + setterName + "(" + var + ", " 
+                        + literal(unit, m.getParameterTypes()[1], value) + ");");
+                return;
+            }
+        }
+        throw new UnsupportedFxmlException("no static property " + name);
+    }
+    
+    private void handler(Unit unit, String var, Class<?> type, String name, String method) throws Exception {
+        Method setter = findSetter(type, name, null);
+        
+        if (setter == null)
+            throw new UnsupportedFxmlException("no event property " + name + " on " + type.getName());
+        if (unit.controller == null)
+            throw new UnsupportedFxmlException("handler #" + method + " without a controller");
+        
+        Integer params = unit.controller.methods.get(method);
+        if (params == null || params < 0 || params > 1)
+            throw new UnsupportedFxmlException("handler #" + method + " is not an accessible @FXML method");
+        
+        unit.line(var + "." + setter.getName() + "(event -> c." + method + "(" + (params == 1 ? "event" : "") + "));");
+    }
+    
+    private void inject(Unit unit, String var, String id) throws UnsupportedFxmlException {
+        if (unit.controller == null)
+            return;
+        
+        Boolean accessible = unit.controller.fields.get(id);
+        if (accessible == null)
+            return;
+        if (!accessible)
+            throw new UnsupportedFxmlException("@FXML field " + id + " is private");
+        unit.line("c." + id + " = " + var + ";");
+    }
+    
+    /**
+     * Java expression for an attribute value converted to the given type.
+     */
+    private String literal(Unit unit, Class<?> type, String value) throws Exception {
+        if (value.startsWith("$") || value.startsWith("%"))
+            throw new UnsupportedFxmlException("expression " + value);
+        
+        if (value.startsWith("@")) {
+            String location = location(unit, value.substring(1));
+            if (type == String.class || type == Object.class)
+                return location + ".toExternalForm()";
+            if (type == URL.class)
+                return location;
+            throw new UnsupportedFxmlException("location " + value + " for " + type.getName());
+        }
+        
+        if (value.startsWith("\\"))
+            value = value.substring(1);
+        
+        if (type == String.class || type == Object.class || type == CharSequence.class)
+            return quote(value);
+        if (type == int.class || type == Integer.class)
+            return Integer.toString(Integer.parseInt(value));
+        if (type == long.class || type == Long.class)
+            return Long.parseLong(value) + "L";
+        if (type == short.class || type == Short.class)
+            return "(short) " + Short.parseShort(value);
+        if (type == byte.class || type == Byte.class)
+            return "(byte) " + Byte.parseByte(value);
+        if (type == char.class || type == Character.class) {
+            if (value.length() != 1)
+                throw new UnsupportedFxmlException("character " + value);
+            return quote(value).replace('"', '\'');
+        }
+        if (type == boolean.class || type == Boolean.class)
+            return Boolean.toString(Boolean.parseBoolean(value));
+        if (type == double.class || type == Double.class)
+            return doubleLiteral(Double.parseDouble(value));
+        if (type == float.class || type == Float.class) {
+            float f = Float.parseFloat(value);
+            if (Float.isNaN(f) || Float.isInfinite(f))
+                return "(float) " + doubleLiteral(f);
+            return Float.toString(f) + "f";
+        }
+        if (type.isEnum()) 
+            return type.getCanonicalName() + "." + enumConstant(type, value);
+        if (type.getName().equals("javafx.scene.paint.Paint") || type.getName().equals("javafx.scene.paint.Color"))
+            return "javafx.scene.paint.Color.web(" + quote(value) + ")";
+        return valueOf(unit, type, value);
+    }
+    
+    private String valueOf(Unit unit, Class<?> type, String value) throws Exception {
+        if (type == URL.class && value.startsWith("@"))
+            return location(unit, value.substring(1));
+        
+        if (type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type) 
+                || type == Boolean.class || type == Character.class || type.isEnum())
+            return literal(unit, type, value);
+        
+        try {
+            Method m = type.getMethod("valueOf", String.class);
+            if (Modifier.isStatic(m.getModifiers()) && type.isAssignableFrom(m.getReturnType()))
+                return type.getCanonicalName() + ".valueOf(" + quote(value) + ")";
+        } catch (NoSuchMethodException ex) {
+            // Fall through.
+        }
+        throw new UnsupportedFxmlException("cannot convert " + value + " to " + type.getName());
+    }
+    
+    // A resource path relative to the FXML file, as FXMLLoader resolves "@" values.
+    private String location(Unit unit, String path) {
+        String dir = unit.resource.substring(0, unit.resource.lastIndexOf('/') + 1);
+        String resolved = path.startsWith("/") ? path : dir + path;
+        return unit.className + ".class.getResource(" + quote(resolved) + ")";
+    }
+    
+    private static String doubleLiteral(double d) {
+        if (Double.isNaN(d))
+            return "Double.NaN";
+        if (d == Double.POSITIVE_INFINITY)
+            return "Double.POSITIVE_INFINITY";
+        if (d == Double.NEGATIVE_INFINITY)
+            return "Double.NEGATIVE_INFINITY";
+        return Double.toString(d);
+    }
+    
+    private static String enumConstant(Class<?> type, String value) throws UnsupportedFxmlException {
+        String upper = value.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        
+        for (Object c : type.getEnumConstants()) {
+            String name = ((Enum<?>) c).name();
+            if (name.equals(value) || name.equals(upper))
+                return name;
+        }
+        throw new UnsupportedFxmlException(value + " is not a " + type.getName());
+    }
+    
+    private Class<?> resolve(Unit unit, String name) throws UnsupportedFxmlException {
+        for (String imp : unit.imports) {
+            String candidate = null;
+            if (imp.endsWith(".*"))
+                candidate = imp.substring(0, imp.length() - 1) + name;
+            else if (imp.endsWith("." + name))
+                candidate = imp;
+            else if (name.contains(".") && imp.endsWith("." + name.substring(0, name.indexOf('.'))))
+                candidate = imp + name.substring(name.indexOf('.'));
+            if (candidate != null) {
+                Class<?> c = load(candidate);
+                if (c != null)
+                    return c;
+            }
+        }
+        Class<?> c = load(name);
+        if (c == null)
+            throw new UnsupportedFxmlException("cannot resolve " + name);
+        return c;
+    }
+    
+    private Class<?> load(String name) {
+        // Nested classes are written Outer.Inner in FXML.
+        while (true) {
+            try {
+                return Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                int dot = name.lastIndexOf('.');
+                if (dot < 0)
+                    return null;
+                name = name.substring(0, dot) + "$" + name.substring(dot + 1);
+                if (name.indexOf('.') < 0)
+                    return null;
+            }
+        }
+    }
+    
+    private static boolean hasNoArgConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()))
+            return false;
+        for (Constructor<?> c : type.getConstructors()) {
+            if (c.getParameterTypes().length == 0)
+                return true;
+        }
+        return false;
+    }
+    
+    private static String defaultProperty(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (java.lang.annotation.Annotation a : c.getDeclaredAnnotations()) {
+                if (a.annotationType().getName().equals("javafx.beans.DefaultProperty")) {
+                    try {
+                        return (String) a.annotationType().getMethod("value").invoke(a);
+                    } catch (ReflectiveOperationException ex) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Setter for a property, preferring one taking valueType if given.
+    private static Method findSetter(Class<?> type, String property, Class<?> valueType) {
+        String name = "set" + capitalize(property);
+        Method found = null;
+        
+        for (Method m : type.getMethods()) {
+            if (m.getName().equals(name) && m.getParameterTypes().length == 1 && !Modifier.isStatic(m.getModifiers())) {
+                if (valueType == null || m.getParameterTypes()[0].isAssignableFrom(valueType)) {
+                    if (found == null || m.getParameterTypes()[0] == String.class)
+                        found = m;
+                }
+            }
+        }
+        return found;
+    }
+    
+    private static Method findGetter(Class<?> type, String property) {
+        try {
+            return type.getMethod("get" + capitalize(property));
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+    
+    private static Class<?> listElementType(Method getter) {
+        Type t = getter.getGenericReturnType();
+        
+        if (t instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) t).getActualTypeArguments()[0];
+            if (arg instanceof WildcardType)
+                arg = ((WildcardType) arg).getUpperBounds()[0];
+            if (arg instanceof Class)
+                return (Class<?>) arg;
+        }
+        return null;
+    }
+    
+    private static final Pattern FXML_FIELD = Pattern.compile(
+            "@FXML\\s+((?:(?:public|protected|private|static|final|transient|volatile)\\s+)*)[\\w.<>,?\\[\\]\\s]+?\\s+(\\w+)\\s*[;=]");
+    private static final Pattern FXML_METHOD = Pattern.compile(
+            "@FXML\\s+((?:(?:public|protected|private|static|final|synchronized)\\s+)*)[\\w.<>,?\\[\\]]+\\s+(\\w+)\\s*\\(([^)]*)\\)");
+    
+    private static final Pattern INIT_METHOD = Pattern.compile(
+            "(@FXML\\s+)?((?:(?:public|protected|private|static|final|synchronized)\\s+)*)void\\s+initialize\\s*\\(\\s*\\)");
+    
+    /**
+     * Find the @FXML members of a controller and of the superclasses it
+     * inherits them from, which must also be in the package with source.
+     */
+    private ControllerInfo scanController(String className) throws Exception {
+        ControllerInfo info = new ControllerInfo(className);
+        File source = new File(sourceDir, className.replace('.', File.separatorChar) + ".java");
+        
+        if (!className.startsWith(packageName + ".") || className.substring(packageName.length() + 1).contains("."))
+            throw new UnsupportedFxmlException("controller " + className + " is not in " + packageName);
+        if (!source.isFile())
+            throw new UnsupportedFxmlException("no source for controller " + className);
+        
+        String text = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+        
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        Matcher m = Pattern.compile("class\\s+" + simpleName + "(?:\\s*<[^{]*?>)?\\s+extends\\s+([\\w.]+)").matcher(text);
+        if (m.find() && !m.group(1).equals("Object") && !m.group(1).equals("java.lang.Object")) {
+            ControllerInfo parent = scanController(qualify(text, m.group(1)));
+            info.fields.putAll(parent.fields);
+            info.methods.putAll(parent.methods);
+            info.initialize = parent.initialize;
+        }
+        
+        m = INIT_METHOD.matcher(text);
+        while (m.find()) {
+            boolean annotated = m.group(1) != null;
+            String modifiers = m.group(2);
+            if (modifiers.contains("static"))
+                continue;
+            // FXMLLoader calls initialize() if it is public or an accessible @FXML method.
+            if (modifiers.contains("public") || (annotated && !modifiers.contains("private")))
+                info.initialize = true;
+            else if (annotated)
+                throw new UnsupportedFxmlException("@FXML initialize() of " + className + " is private");
+        }
+        
+        m = FXML_FIELD.matcher(text);
+        while (m.find())
+            info.fields.put(m.group(2), !m.group(1).contains("private"));
+        
+        m = FXML_METHOD.matcher(text);
+        while (m.find()) {
+            String params = m.group(3).trim();
+            int count = params.isEmpty() ? 0 : params.split(",").length;
+            info.methods.put(m.group(2), m.group(1).contains("private") ? -1 : count);
+        }
+        return info;
+    }
+    
+    // Fully qualified name of a class named in a controller's source.
+    private String qualify(String source, String name) {
+        if (name.contains("."))
+            return name;
+        
+        Matcher m = Pattern.compile("import\\s+([\\w.]+\\." + name + ")\\s*;").matcher(source);
+        if (m.find())
+            return m.group(1);
+        return packageName + "." + name;
+    }
+    
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+    
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        
+        for (char ch : s.toCharArray()) {
+            switch (ch) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (ch < 0x20 || ch > 0x7e)
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    else sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -32,6 +32,9 @@ import android.util.Log;
 import android.view.View;
 import android.view.WindowManager;
 import android.view.inputmethod.InputMethodManager;
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
 import javafxports.android.FXActivity;
 
 /**
@@ -42,6 +45,7 @@ public class AndroidPlatformProvider implements PlatformProvider {
     
     private static final String APP_NAME = "AppTemplate";
     private final Context context = FXActivity.getInstance();
+    private final RunLookupCache runLookups = new RunLookupCache(this::lookupForRun, RunLookupCache.DEFAULT_TTL_MS);
       
     @Override
     public String getSetting(String name) {
@@ -57,6 +61,15 @@ public class AndroidPlatformProvider implements PlatformProvider {
         editor.commit();
     }
 
+    @Override
+    public void saveSettings(Map<String, String> values) {
+        SharedPreferences prefs = context.getSharedPreferences("com.my", Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, String> e : values.entrySet())
+            editor.putString(e.getKey(), e.getValue());
+        editor.commit();
+    }
+
     @Override
     public void sendMessage(String text) {
       Intent smsIntent = new Intent(android.content.Intent.ACTION_VIEW);
@@ -76,6 +89,11 @@ public class AndroidPlatformProvider implements PlatformProvider {
     public void log(String text) {
         Log.d(APP_NAME, text);
     }
+    
+    @Override
+    public String getLogDirectory() {
+        return new File(context.getFilesDir(), "logs").getPath();
+    }
 
     @Override
     public boolean isIOS() {
@@ -142,6 +160,15 @@ public class AndroidPlatformProvider implements PlatformProvider {
    
     @Override
     public boolean existsForRun(String exec) {
+        return runLookups.exists(exec);
+    }
+   
+    @Override
+    public Map<String, Boolean> existsForRun(Collection<String> execs) {
+        return runLookups.existsAll(execs);
+    }
+    
+    private boolean lookupForRun(String exec) {
         PackageManager pm = context.getPackageManager();
         if (pm == null) {
             log("Null PackageManager in existsForRun()");
@@ -29,6 +29,15 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
@@ -37,7 +46,27 @@ import java.util.prefs.Preferences;
  */
 public class DesktopPlatformProvider implements PlatformProvider {
 
+    private static final ProcessManager processes = new ProcessManager();
+    private static final long HELPER_TIMEOUT_MS = 10000;
+    
     Preferences prefs = Preferences.userNodeForPackage(this.getClass());
+    
+    // Answers are kept until the watcher sees their directory change.
+    private final RunLookupCache runLookups = new RunLookupCache(this::lookupForRun, 0);
+    private final RunPathWatcher runWatcher = new RunPathWatcher(this::runPathChanged);
+    
+    {
+        if (!runWatcher.isAvailable())
+            runLookups.setTtl(RunLookupCache.DEFAULT_TTL_MS);
+    }
+    
+    /**
+     * 
+     * @return  The manager platformRun runs programs with.
+     */
+    public static ProcessManager getProcessManager() {
+        return processes;
+    }
 
     @Override
     public String getSetting(String name) {
@@ -49,6 +78,17 @@ public class DesktopPlatformProvider implements PlatformProvider {
         prefs.put(name, value);
     }
 
+    @Override
+    public void saveSettings(Map<String, String> values) {
+        for (Map.Entry<String, String> e : values.entrySet())
+            prefs.put(e.getKey(), e.getValue());
+        try {
+            prefs.flush();
+        } catch (BackingStoreException ex) {
+            Log.e(ex);
+        }
+    }
+
     @Override
     public void sendMessage(String text) {
         if (Desktop.isDesktopSupported()) {
@@ -80,6 +120,11 @@ public class DesktopPlatformProvider implements PlatformProvider {
         System.err.print(text);
     }
     
+    @Override
+    public String getLogDirectory() {
+        return new File(System.getProperty("user.home"), ".AppTemplate" + File.separator + "logs").getPath();
+    }
+    
     @Override
     public boolean isIOS() {
         return false;
@@ -100,15 +145,11 @@ public class DesktopPlatformProvider implements PlatformProvider {
         String system = System.getProperty("os.name").toLowerCase();
 
         if (system.contains("windows")) {
-            try {
-                // Requires elevation as osk.exe gets run at an intermediate
-                // access level in order to work with system software.
-                // It's not clear if there is an easy way to close osk.exe
-                // from a non admin process.
-                Runtime.getRuntime().exec("taskkill /im /f osk.exe");
-            } catch (IOException ex) {
-                Log.e(ex);
-            }
+            // Requires elevation as osk.exe gets run at an intermediate
+            // access level in order to work with system software.
+            // It's not clear if there is an easy way to close osk.exe
+            // from a non admin process.
+            logExit("taskkill", processes.run(Arrays.asList("taskkill", "/f", "/im", "osk.exe"), null, HELPER_TIMEOUT_MS));
         }
     }
 
@@ -117,28 +158,82 @@ public class DesktopPlatformProvider implements PlatformProvider {
         String system = System.getProperty("os.name").toLowerCase();
 
         if (system.contains("windows")) {
-            try {
-                Runtime.getRuntime().exec("cmd.exe /c osk.exe");
-            } catch (IOException ex) {
-                Log.e(ex);
-            }
+            launch(Arrays.asList("cmd.exe", "/c", "osk.exe"));
         }
     }
     
     @Override
     public void platformRun(String exec) {
+        platformRun(exec, null, processes.getDefaultTimeout());
+    }
+    
+    /**
+     * 
+     * Run a program through the process manager. It counts against the
+     * manager's limit on running processes, and is killed if it runs past
+     * the timeout.
+     * 
+     * @param exec      Path to a program, or a command line split at spaces outside double quotes.
+     * @param output    Receives each line of output on a worker thread, or null to log it.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @return          Future for the exit code.
+     */
+    public CompletableFuture<Integer> platformRun(String exec, Consumer<String> output, long timeoutMs) {
+        // A path to an existing file is one argument even if it has spaces in it.
+        List<String> command = new File(exec).isFile() ? Collections.singletonList(exec) : ProcessManager.tokenize(exec);
+        if (command.isEmpty()) {
+            CompletableFuture<Integer> empty = new CompletableFuture<>();
+            empty.completeExceptionally(new IllegalArgumentException("Empty command"));
+            return empty;
+        }
+        
+        CompletableFuture<Integer> exit = processes.run(command, output, timeoutMs);
+        logExit(exec, exit);
+        return exit;
+    }
+    
+    // Only for programs which must outlive the application, such as the on-screen keyboard.
+    private static void launch(List<String> command) {
         try {
-            Runtime.getRuntime().exec(exec);
+            processes.launch(command);
         } catch (IOException ex) {
             Log.e(ex);
         }
     }
+    
+    private static void logExit(String name, CompletableFuture<Integer> exit) {
+        exit.whenComplete((code, ex) -> {
+            if (ex != null)
+                Log.e(name + ": " + ex);
+            else if (code != 0)
+                Log.d(() -> name + " exited with " + code);
+        });
+    }
 
     @Override
     public boolean existsForRun(String exec) {
-        File f = new File(exec);
+        return runLookups.exists(exec);
+    }
+
+    @Override
+    public Map<String, Boolean> existsForRun(Collection<String> execs) {
+        return runLookups.existsAll(execs);
+    }
+    
+    private boolean lookupForRun(String exec) {
+        File f = new File(exec).getAbsoluteFile();
+        // Watch before looking so a change made in between is not missed.
+        if (!runWatcher.watch(f.toPath()))
+            runLookups.setTtl(RunLookupCache.DEFAULT_TTL_MS);
         return (f.exists() && !f.isDirectory());
     }
+    
+    private void runPathChanged(Path changed) {
+        if (changed == null)
+            runLookups.invalidateAll();
+        else
+            runLookups.invalidateIf(exec -> new File(exec).getAbsoluteFile().toPath().startsWith(changed));
+    }
 
     @Override
     public Object test() {
@@ -0,0 +1,74 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * 
+ * Prints the records in a directory of log segments written by 
+ * LogFileAppender, oldest first. Copy the log directory off a device
+ * and run:
+ * 
+ *      java -cp &lt;classes&gt; com.my.mobileapp.LogFileReader &lt;log directory&gt;
+ *
+ * @author Heath Leach
+ */
+public class LogFileReader {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: LogFileReader <log directory>");
+            System.exit(1);
+        }
+        
+        File[] files = new File(args[0]).listFiles((dir, name) -> 
+                name.startsWith(LogFileAppender.SEGMENT_PREFIX) && name.endsWith(LogFileAppender.SEGMENT_SUFFIX));
+        
+        if (files == null) {
+            System.err.println("Not a directory: " + args[0]);
+            System.exit(1);
+        }
+        
+        ArrayList<File> segments = new ArrayList<>();
+        for (File f : files) {
+            if (LogFileAppender.readSequence(f) >= 0)
+                segments.add(f);
+        }
+        segments.sort(Comparator.comparingLong(LogFileAppender::readSequence));
+        
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS ");
+        for (File f : segments) {
+            LogFileAppender.readRecords(f, (time, text) -> {
+                System.out.print(format.format(new Date(time)));
+                System.out.print(text);
+            });
+        }
+    }
+}
@@ -0,0 +1,374 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 
+ * Starts desktop processes and looks after them until they exit.
+ * 
+ * Commands are argument lists passed to ProcessBuilder. Standard output and
+ * error are merged and read line by line on a worker thread, so a chatty
+ * process never stalls on a full pipe, and each process is waited for once
+ * its output ends so none are left behind. At most getMaxRunning() processes
+ * run at once, the rest wait in order. A process still running after its
+ * timeout is destroyed, then forcibly destroyed if it has not gone shortly
+ * afterwards.
+ * 
+ * Futures from run complete with the exit code, or fail with a
+ * TimeoutException if the process was killed for taking too long.
+ * Cancelling one removes a waiting process from the queue or kills a
+ * running one. Processes with a timeout are killed when the application
+ * exits, others are left to finish.
+ * 
+ * Programs that must outlive the application, such as the on-screen
+ * keyboard, are started with launch instead. They are not counted, watched
+ * or killed.
+ *
+ * @author Heath Leach
+ */
+public class ProcessManager {
+    
+    public static final int DEFAULT_MAX_RUNNING = 4;
+    private static final long KILL_GRACE_MS = 2000;
+    private static final File NULL_FILE = 
+            new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+    
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    
+    // Guarded by this
+    private final ArrayDeque<Launch> queue = new ArrayDeque<>();
+    private final Set<Launch> running = new HashSet<>();
+    private int maxRunning = DEFAULT_MAX_RUNNING;
+    
+    private volatile long defaultTimeoutMs = 0;
+    
+    private static class Launch {
+        final List<String> command;
+        final Consumer<String> output;
+        final long timeoutMs;
+        final CompletableFuture<Integer> exit = new CompletableFuture<>();
+        
+        // Guarded by this
+        Process process = null;
+        volatile boolean timedOut = false;
+        
+        Launch(List<String> command, Consumer<String> output, long timeoutMs) {
+            this.command = command;
+            this.output = output;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+    
+    public ProcessManager() {
+        AtomicInteger count = new AtomicInteger();
+        // Only running processes hold a worker, so the pool is bounded by maxRunning.
+        workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "process-output-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "process-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::destroyOnExit));
+    }
+    
+    /**
+     * 
+     * Split a command line into arguments at spaces, keeping text inside
+     * double quotes together.
+     * 
+     * @param commandLine   Command line to split.
+     * @return              The arguments.
+     */
+    public static List<String> tokenize(String commandLine) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        boolean quoted = false;
+        boolean inArg = false;
+        
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg)
+            args.add(arg.toString());
+        return args;
+    }
+    
+    /**
+     * 
+     * Start a program and leave it to run on its own. Its output is discarded,
+     * it does not count against getMaxRunning() and it is not killed when the
+     * application exits. The JVM reaps it when it exits.
+     * 
+     * @param command       Program followed by its arguments.
+     * @return              The started process.
+     * @throws IOException  If the program could not be started.
+     */
+    public Process launch(List<String> command) throws IOException {
+        if (command == null || command.isEmpty())
+            throw new IllegalArgumentException("Empty command");
+        
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(NULL_FILE))
+                .start();
+        process.getOutputStream().close();
+        return process;
+    }
+    
+    /**
+     * 
+     * Run a command with its output sent to the debug log and the default timeout.
+     * 
+     * @param command   Program followed by its arguments.
+     * @return          Future for the exit code.
+     */
+    public CompletableFuture<Integer> run(List<String> command) {
+        return run(command, null, defaultTimeoutMs);
+    }
+    
+    /**
+     * 
+     * @param command   Program followed by its arguments.
+     * @param output    Receives each line of output on a worker thread, or null to log it.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @return          Future for the exit code.
+     */
+    public CompletableFuture<Integer> run(List<String> command, Consumer<String> output, long timeoutMs) {
+        if (command == null || command.isEmpty())
+            throw new IllegalArgumentException("Empty command");
+        
+        String name = command.get(0);
+        Launch launch = new Launch(new ArrayList<>(command), 
+                output != null ? output : line -> Log.d(() -> name + ": " + line), timeoutMs);
+        
+        launch.exit.whenComplete((code, ex) -> {
+            if (ex instanceof CancellationException)
+                cancel(launch);
+        });
+        
+        synchronized (this) {
+            queue.add(launch);
+        }
+        startQueued();
+        return launch.exit;
+    }
+    
+    private void startQueued() {
+        synchronized (this) {
+            while (running.size() < maxRunning && !queue.isEmpty()) {
+                Launch launch = queue.poll();
+                running.add(launch);
+                workers.execute(() -> execute(launch));
+            }
+        }
+    }
+    
+    private void execute(Launch launch) {
+        ScheduledFuture<?> timeout = null;
+        try {
+            if (launch.exit.isDone())
+                return;
+            
+            Process process = new ProcessBuilder(launch.command).redirectErrorStream(true).start();
+            synchronized (launch) {
+                launch.process = process;
+            }
+            if (launch.exit.isDone())
+                kill(launch);
+            
+            process.getOutputStream().close();
+            
+            if (launch.timeoutMs > 0) {
+                timeout = timer.schedule(() -> {
+                    launch.timedOut = true;
+                    kill(launch);
+                }, launch.timeoutMs, TimeUnit.MILLISECONDS);
+            }
+            
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        launch.output.accept(line);
+                    } catch (RuntimeException ex) {
+                        Log.e(ex);
+                    }
+                }
+            }
+            
+            int code = process.waitFor();
+            if (launch.timedOut)
+                launch.exit.completeExceptionally(new TimeoutException(launch.command.get(0) 
+                        + " was killed after " + launch.timeoutMs + " ms"));
+            else
+                launch.exit.complete(code);
+        } catch (IOException ex) {
+            launch.exit.completeExceptionally(ex);
+        } catch (InterruptedException ex) {
+            kill(launch);
+            launch.exit.completeExceptionally(ex);
+        } finally {
+            if (timeout != null)
+                timeout.cancel(false);
+            synchronized (this) {
+                running.remove(launch);
+            }
+            startQueued();
+        }
+    }
+    
+    private void cancel(Launch launch) {
+        synchronized (this) {
+            if (queue.remove(launch))
+                return;
+        }
+        kill(launch);
+    }
+    
+    private void kill(Launch launch) {
+        Process process;
+        synchronized (launch) {
+            process = launch.process;
+        }
+        if (process == null || !process.isAlive())
+            return;
+        
+        process.destroy();
+        timer.schedule(() -> {
+            if (process.isAlive())
+                process.destroyForcibly();
+        }, KILL_GRACE_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 
+     * Forcibly destroy every process started with run and drop the queue.
+     */
+    public void destroyAll() {
+        destroy(false);
+    }
+    
+    // Only work with a timeout is killed on exit, anything else may outlive the application.
+    private void destroyOnExit() {
+        destroy(true);
+    }
+    
+    private void destroy(boolean timedOnly) {
+        List<Launch> launches = new ArrayList<>();
+        synchronized (this) {
+            for (Launch launch : running) {
+                if (!timedOnly || launch.timeoutMs > 0)
+                    launches.add(launch);
+            }
+            for (Launch launch : queue) {
+                if (!timedOnly || launch.timeoutMs > 0)
+                    launches.add(launch);
+            }
+            queue.removeAll(launches);
+        }
+        for (Launch launch : launches) {
+            Process process;
+            synchronized (launch) {
+                process = launch.process;
+            }
+            if (process != null)
+                process.destroyForcibly();
+            else
+                launch.exit.cancel(false);
+        }
+    }
+    
+    /**
+     * 
+     * @param max   Most processes to run at once.
+     */
+    public void setMaxRunning(int max) {
+        synchronized (this) {
+            maxRunning = Math.max(1, max);
+        }
+        startQueued();
+    }
+    
+    public synchronized int getMaxRunning() {
+        return maxRunning;
+    }
+    
+    /**
+     * 
+     * @param timeoutMs Timeout for run(command) in milliseconds, or 0 for no limit.
+     */
+    public void setDefaultTimeout(long timeoutMs) {
+        defaultTimeoutMs = timeoutMs;
+    }
+    
+    public long getDefaultTimeout() {
+        return defaultTimeoutMs;
+    }
+    
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+    
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+}
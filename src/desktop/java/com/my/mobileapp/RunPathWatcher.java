@@ -0,0 +1,139 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 
+ * Watches the directories holding programs checked by existsForRun and
+ * reports what changed, so cached answers can be dropped.
+ * 
+ * The nearest existing directory above a path is watched, so a program
+ * appearing in a directory created later is still noticed. Changes are
+ * reported as the path that changed, or null if events were lost and
+ * everything should be checked again.
+ *
+ * @author Heath Leach
+ */
+public class RunPathWatcher {
+    
+    private final WatchService service;
+    private final ConcurrentHashMap<Path, WatchKey> watched = new ConcurrentHashMap<>();
+    private final Consumer<Path> onChange;
+    
+    public RunPathWatcher(Consumer<Path> onChange) {
+        this.onChange = onChange;
+        
+        WatchService ws = null;
+        try {
+            ws = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException ex) {
+            Log.e("Program lookups will not be watched: " + ex);
+        }
+        service = ws;
+        
+        if (service != null) {
+            Thread t = new Thread(this::drain, "run-path-watcher");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+    
+    /**
+     * 
+     * @return  True if changes can be watched on this system.
+     */
+    public boolean isAvailable() {
+        return service != null;
+    }
+    
+    /**
+     * 
+     * Watch for changes that could affect a path.
+     * 
+     * @param path  Absolute path to watch.
+     * @return      True if it is watched.
+     */
+    public boolean watch(Path path) {
+        if (service == null)
+            return false;
+        
+        Path dir = path.getParent();
+        while (dir != null && !Files.isDirectory(dir))
+            dir = dir.getParent();
+        if (dir == null)
+            return false;
+        
+        if (watched.containsKey(dir))
+            return true;
+        
+        try {
+            WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watched.putIfAbsent(dir, key);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            Log.d(() -> "Cannot watch " + path + ": " + ex);
+            return false;
+        }
+    }
+    
+    public int getWatchedCount() {
+        return watched.size();
+    }
+    
+    private void drain() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path dir = (Path) key.watchable();
+                
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        onChange.accept(null);
+                    else
+                        onChange.accept(dir.resolve((Path) event.context()));
+                }
+                
+                if (!key.reset()) {
+                    watched.remove(dir, key);
+                    onChange.accept(dir);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Stopped
+        }
+    }
+}
@@ -23,6 +23,10 @@
 
 package com.my.mobileapp;
 
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.robovm.apple.foundation.NSUserDefaults;
 
 /**
@@ -52,6 +56,14 @@ public class IosPlatformProvider implements PlatformProvider {
         NSUserDefaults.getStandardUserDefaults().put(name, value);
     }
 
+    @Override
+    public void saveSettings(Map<String, String> values) {
+        NSUserDefaults defaults = NSUserDefaults.getStandardUserDefaults();
+        for (Map.Entry<String, String> e : values.entrySet())
+            defaults.put(e.getKey(), e.getValue());
+        defaults.synchronize();
+    }
+
     @Override
     public void sendMessage(String text) {
     }
@@ -64,6 +76,12 @@ public class IosPlatformProvider implements PlatformProvider {
     public void log(String text) {
     }
 
+    @Override
+    public String getLogDirectory() {
+        // The app's sandbox home, Library is backed up but not visible to the user.
+        return new File(System.getProperty("user.home"), "Library" + File.separator + "logs").getPath();
+    }
+
     @Override
     public boolean isIOS() {
         return true;
@@ -98,6 +116,14 @@ public class IosPlatformProvider implements PlatformProvider {
         return false;
     }
 
+    @Override
+    public Map<String, Boolean> existsForRun(Collection<String> execs) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (String exec : execs)
+            result.put(exec, false);
+        return result;
+    }
+
     @Override
     public Object test() {
         
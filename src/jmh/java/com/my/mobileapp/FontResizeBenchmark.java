@@ -0,0 +1,91 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.Pane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Cost of a DynamicScreen resize against the number of nodes registered for
+ * dynamic fonts, including the CSS pass the new font sizes cause.
+ * 
+ * @author Heath Leach
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontResizeBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    public int nodes;
+    
+    private DynamicScreen screen;
+    
+    @Setup
+    public void setup() throws Exception {
+        FxToolkit.start();
+        FxToolkit.runAndWait(() -> {
+            Scene scene = new Scene(AppTemplate.getScreenMap(), 400, 680);
+            screen = new DynamicScreen("DynamicExample", new MainController(), scene, 200, 200);
+            AppTemplate.getScreenMap().addScreen("bench", screen);
+            AppTemplate.getScreenMap().flipScreen("bench");
+            
+            Pane extra = new FlowPane();
+            for (int i = 0; i < nodes; i++) {
+                Label label = new Label("Label " + i);
+                extra.getChildren().add(label);
+                screen.setDynamicFont(label, 12, 20);
+            }
+            ((Pane) screen.getChildren().get(0)).getChildren().add(extra);
+            return null;
+        });
+    }
+    
+    @Benchmark
+    public Object resize() throws Exception {
+        return FxToolkit.runAndWait(() -> {
+            screen.refresh(true);
+            screen.applyCss();
+            return screen;
+        });
+    }
+}
@@ -0,0 +1,114 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.FlowPane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Style recomputation cost of a font resize, setting an inline -fx-font-size
+ * style on every node against scaling them with FontScaleEngine. Each
+ * invocation moves to a new scale and runs the CSS pass which follows.
+ * 
+ * @author Heath Leach
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontScaleBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    public int nodes;
+    
+    private FlowPane styled;
+    private FlowPane scaled;
+    private FontScaleEngine engine;
+    private int step = 0;
+    
+    @Setup
+    public void setup() throws Exception {
+        FxToolkit.start();
+        FxToolkit.runAndWait(() -> {
+            styled = new FlowPane();
+            scaled = new FlowPane();
+            engine = new FontScaleEngine();
+            for (int i = 0; i < nodes; i++) {
+                styled.getChildren().add(new Label("Label " + i));
+                Label label = new Label("Label " + i);
+                scaled.getChildren().add(label);
+                engine.add(label, 12);
+            }
+            new Scene(new Group(styled, scaled), 400, 680);
+            styled.applyCss();
+            scaled.applyCss();
+            engine.setScale(1);
+            return null;
+        });
+    }
+    
+    // Walks through sizes the way a window drag would.
+    private double nextScale() {
+        step = (step + 1) % 64;
+        return 1 + step / 64.0;
+    }
+    
+    @Benchmark
+    public Object inlineStyle() throws Exception {
+        return FxToolkit.runAndWait(() -> {
+            double size = 12 * nextScale();
+            for (Node n : styled.getChildren())
+                n.setStyle("-fx-font-size:" + size + ";");
+            styled.applyCss();
+            return styled;
+        });
+    }
+    
+    @Benchmark
+    public Object fontScaleEngine() throws Exception {
+        return FxToolkit.runAndWait(() -> {
+            engine.setScale(nextScale());
+            scaled.applyCss();
+            return scaled;
+        });
+    }
+}
@@ -0,0 +1,83 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import com.sun.javafx.application.PlatformImpl;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.application.Platform;
+
+/**
+ *
+ * Starts the JavaFX toolkit for benchmarks and runs work on its thread. The
+ * jmh task runs it headless under Monocle.
+ * 
+ * @author Heath Leach
+ */
+public class FxToolkit {
+    
+    private static boolean started = false;
+    
+    public static synchronized void start() throws InterruptedException {
+        if (!started) {
+            CountDownLatch latch = new CountDownLatch(1);
+            PlatformImpl.startup(latch::countDown);
+            latch.await();
+            started = true;
+        }
+    }
+    
+    /**
+     * 
+     * Run work on the FX Application Thread and wait for its result.
+     * 
+     * @param work          Work to run.
+     * @return              Result of the work.
+     * @throws Exception    Whatever the work threw.
+     */
+    public static <T> T runAndWait(Callable<T> work) throws Exception {
+        if (Platform.isFxApplicationThread())
+            return work.call();
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        
+        Platform.runLater(() -> {
+            try {
+                result.set(work.call());
+            } catch (Exception ex) {
+                error.set(ex);
+            } finally {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        
+        if (error.get() != null)
+            throw error.get();
+        return result.get();
+    }
+}
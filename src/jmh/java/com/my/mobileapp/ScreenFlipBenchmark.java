@@ -0,0 +1,127 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Scene;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Latency of changing screens in a ScreenMapPane, up to and including the
+ * CSS and layout pass which the next pulse would run. For the animated
+ * transitions this is the cost of starting them and of their first frame.
+ * 
+ * Each invocation makes FLIPS screen changes in one task on the FX
+ * Application Thread, so the hop to that thread is spread across them.
+ * Animated transitions are finished after each change so none are left
+ * running into later samples.
+ * 
+ * @author Heath Leach
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScreenFlipBenchmark {
+    
+    private static final int FLIPS = 100;
+    
+    private ScreenMapPane screenMap;
+    private Scene scene;
+    private boolean toggle = false;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        FxToolkit.start();
+        FxToolkit.runAndWait(() -> {
+            screenMap = new ScreenMapPane("one", ScreenLoader.load("/StaticExample.fxml", new StaticExampleController()));
+            screenMap.addScreen("two", ScreenLoader.load("/StaticExample.fxml", new StaticExampleController()));
+            scene = new Scene(screenMap, 400, 680);
+            pulse();
+            return null;
+        });
+    }
+    
+    @TearDown(Level.Iteration)
+    public void finish() throws Exception {
+        FxToolkit.runAndWait(() -> {
+            screenMap.finishTransition();
+            return null;
+        });
+    }
+    
+    private void pulse() {
+        screenMap.applyCss();
+        screenMap.layout();
+    }
+    
+    private int flips(ScreenTransition transition) throws Exception {
+        return FxToolkit.runAndWait(() -> {
+            int flipped = 0;
+            for (int i = 0; i < FLIPS; i++) {
+                toggle = !toggle;
+                CompletableFuture<Boolean> shown = screenMap.navigate(toggle ? "two" : "one", transition);
+                pulse();
+                screenMap.finishTransition();
+                if (shown.getNow(false))
+                    flipped++;
+            }
+            return flipped;
+        });
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(FLIPS)
+    public int flipScreen() throws Exception {
+        return flips(ScreenTransition.FLIP);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(FLIPS)
+    public int fadeScreen() throws Exception {
+        return flips(ScreenTransition.FADE);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(FLIPS)
+    public int slideScreen() throws Exception {
+        return flips(ScreenTransition.SLIDE_LEFT);
+    }
+}
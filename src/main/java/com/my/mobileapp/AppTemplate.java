@@ -23,6 +23,7 @@
 
 package com.my.mobileapp;
 
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Application;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
@@ -74,25 +75,47 @@ public class AppTemplate extends Application {
         }
     }
     
-    private static void loadScreens() {
-        // Set the message on the splash screen.
-        splash.setMessage("Loading screens...");
+    private static LoadingPlan loadScreens() {
+        // Screens are loaded in steps spread over several frames, so the splash screen
+        // keeps drawing and its progress bar moves.
+        LoadingPlan plan = new LoadingPlan("startup");
         
-        // Load an example DynamicScreen. We have named this "main" and that is how we will reference it via the screenMap
-        screenMap.addScreen("main", new DynamicScreen("DynamicExample", new MainController(), scene, 400, 400));
+        // Load an example DynamicScreen. We have named this "main" and that is how we will reference it via the screenMap.
+        // It is lazy, so only the layouts actually shown get loaded, and the one a rotation would show is prefetched.
+        plan.add("main screen", () -> {
+            DynamicScreen main = new DynamicScreen("DynamicExample", new MainController(), scene, 400, 400, true);
+            main.setPrefetch(true);
+            screenMap.addScreen("main", main);
+        });
+        
+        // Here we will load a static screen into the screenMap. It is parsed on a background
+        // worker; flipping to "static" before it is ready waits for it to finish loading.
+        plan.addAsync("static screen", () -> 
+                screenMap.addResourceAsync("static", "/StaticExample.fxml", new StaticExampleController()));
+        
+        // Show the main screen as soon as it is ready, rather than once everything is.
+        plan.whenDone("main screen", () -> screenMap.flipScreen("main"));
         
-        // Here we will load a static screen into the screenMap:
-        screenMap.addResource("static", "/StaticExample.fxml", new StaticExampleController());
+        plan.setMessageListener(step -> splash.setMessage("Loading " + step + "..."));
+        plan.setProgressListener(splash::setProgress);
+        return plan;
     }
 
     @Override
     public void start(Stage newStage) {
+        StartupTrace.Span startSpan = StartupTrace.begin("start");
         stage = newStage;
         Rectangle2D visualBounds = getVisualBounds();
-        scene = new Scene(screenMap, visualBounds.getWidth(), visualBounds.getHeight());
-        stage.getIcons().add(new Image(AppTemplate.class.getResourceAsStream("/icon.png")));
-        stage.setScene(scene);
-        stage.show();
+        try (StartupTrace.Span span = StartupTrace.begin("Scene")) {
+            scene = new Scene(screenMap, visualBounds.getWidth(), visualBounds.getHeight());
+        }
+        try (StartupTrace.Span span = StartupTrace.begin("Icon decode")) {
+            stage.getIcons().add(new Image(AppTemplate.class.getResourceAsStream("/icon.png")));
+        }
+        try (StartupTrace.Span span = StartupTrace.begin("Stage show")) {
+            stage.setScene(scene);
+            stage.show();
+        }
         
         // PlatformService provides Platform dependent functions
         // In this case, we are checking if it is running on a desktop machine.
@@ -101,21 +124,39 @@ public class AppTemplate extends Application {
             newStage.setMinWidth(DESKTOP_MIN_WIDTH);
         }
         
-        loadScreens();
+        // Keep a copy of the log on the device for field diagnostics.
+        PlatformService.enableLogFileAsync();
+        
+        // Report scene graph changes made off the FX Application Thread when asked to.
+        if (Boolean.getBoolean(FxThreadChecker.ENABLE_PROPERTY))
+            screenMap.setThreadChecks(true);
         
-        splash.setMessage("You never even see me because it loads too quick...");
-              
-        screenMap.flipScreen("main");
+        CompletableFuture<Void> loaded = loadScreens().start();
         
         screenMap.setOnKeyPressed( keyEvent -> { 
             switch (keyEvent.getCode()) {
                 case ESCAPE : 
                         // Back Key in Android
+                    if (screenMap.canGoBack()) {
+                        screenMap.goBack();
+                        keyEvent.consume();
+                    }
                     break;
                 default:
                     break;
             }
         });
+        
+        startSpan.close();
+        
+        // With -Dapptemplate.trace=true, write the startup trace once every screen has loaded.
+        if (StartupTrace.isEnabled()) {
+            StartupTrace.Span loading = StartupTrace.begin("Loading");
+            loaded.thenRun(() -> {
+                loading.close();
+                StartupTrace.writeToLogDirectory();
+            });
+        }
        
     }
 
@@ -23,22 +23,23 @@
 
 package com.my.mobileapp;
 
-import java.net.URL;
 import java.util.ArrayList;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.beans.property.Property;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Pane;
+import javafx.util.Duration;
 
 /**
  *
  * @author Heath Leach
  */
-public class DynamicScreen extends AnchorPane {
+public class DynamicScreen extends AnchorPane implements ScreenLifecycle {
     
     public static final int OR_ERROR = -1;
     public static final int OR_NULL = 0;
@@ -48,39 +49,88 @@ public class DynamicScreen extends AnchorPane {
     public static final int OR_SLIMLANDSCAPE = 4;
     public static final int OR_TINY = 5;
     
-    // List of nodes for auto resize of fonts.
-    private class NodeFontSize {
-        public Node node;
-        public double fontSizePortrait, fontSizeLandscape;
-        public NodeFontSize(Node n, double fp, double fl) {
-            this.node = n;
-            this.fontSizePortrait = fp;
-            this.fontSizeLandscape = fl;
+    // A single layout of the screen and the controller instance that drives it.
+    // Variants are materialized on first use in lazy mode. Each keeps its own
+    // dynamic font nodes so only the displayed layout is restyled, and its own
+    // model bindings so only the displayed layout's controls follow the model.
+    private class Variant {
+        public final String resource;
+        public Pane pane = null;
+        public DynamicScreenInterface controller = null;
+        public boolean loaded = false;
+        public FontScaleEngine fonts = new FontScaleEngine();
+        public ArrayList<DynamicNodeInterface> customFonts = new ArrayList<>();
+        public double fontScale = Double.NaN;   // Scale fonts were last adjusted for, NaN if dirty
+        public ArrayList<ModelBinding<?>> modelBindings = new ArrayList<>();
+        public boolean modelBound = false;      // Controls are bound to the model
+        private Boolean available = null;
+        public Variant(String suffix) {
+            this.resource = "/" + resourceName + suffix + ".fxml";
+        }
+        // True if there is a resource for this variant. Does not load it.
+        public boolean exists() {
+            if (loaded)
+                return pane != null;
+            if (available == null)
+                available = AppTemplate.class.getResource(resource) != null;
+            return available;
+        }
+        // Controls are synced from the model when bound, so nothing is copied back.
+        public void setModelBound(boolean bound) {
+            if (bound == modelBound)
+                return;
+            modelBound = bound;
+            for (ModelBinding<?> b : modelBindings) {
+                if (bound)
+                    b.bind();
+                else
+                    b.unbind();
+            }
+        }
+    }
+    
+    // A control property that follows a model property while its layout is displayed.
+    private static class ModelBinding<T> {
+        private final Property<T> control;
+        private final Property<T> value;
+        public ModelBinding(Property<T> control, Property<T> value) {
+            this.control = control;
+            this.value = value;
+        }
+        public void bind() {
+            control.bindBidirectional(value);
+        }
+        public void unbind() {
+            control.unbindBidirectional(value);
         }
     }
-    private ArrayList<NodeFontSize> resizeFontList = new ArrayList<>();
 
+    private static final double PREFETCH_DELAY = 500;  // Milliseconds without a flip before prefetching
+    
     private Scene scene;                    // Parent Scene for call back for screen change
-    private Pane landscape;                 // Resource to display in landscape orientation
-    private Pane portrait;                  // Resource to display in portrait orientation
-    private Pane slimLandscape;             // Resource to display in landscape orientation when height is slim
-    private Pane slimPortrait;              // Resource to display in portrait orientation when width is slim
-    private Pane tiny;                      // Resource to display when both height and width are slim
-    private Pane active;                    // The current screen being displayed
+    private Variant landscape;              // Resource to display in landscape orientation
+    private Variant portrait;               // Resource to display in portrait orientation
+    private Variant slimLandscape;          // Resource to display in landscape orientation when height is slim
+    private Variant slimPortrait;           // Resource to display in portrait orientation when width is slim
+    private Variant tiny;                   // Resource to display when both height and width are slim
+    private Variant active;                 // The current screen being displayed
     private int slimX;                      // Number of pixels where width is considered slim
     private int slimY;                      // Number of pixels where height is considered slim
     private String resourceName;            // Base name of the resource loaded.
+    private boolean lazy;                   // Load variants when first displayed rather than up front.
+    private boolean prefetch = false;       // Load the most likely next variant when idle (lazy mode only).
+    private PauseTransition prefetchTimer = null;
+    private Variant initializing = null;    // Variant whose controller is being initialized
+    private boolean shown = false;          // Displayed by the screen map, as told by onShow/onHide
+    private final ScreenModel model = new ScreenModel();
+    private final ResizeScheduler resizeScheduler = new ResizeScheduler(() -> refresh(false));
 
-    private DynamicScreenInterface contLandscape;      // Controller instances for the screens
-    private DynamicScreenInterface contPortrait; 
-    private DynamicScreenInterface contSlimLandscape; 
-    private DynamicScreenInterface contSlimPortrait; 
-    private DynamicScreenInterface contTiny; 
+    private DynamicScreenInterface baseController;     // Controller passed in, used for the first variant loaded
     
+    // Width and height changes are merged into one refresh per pulse.
     ChangeListener<Number> sizeListener = 
         (ObservableValue<? extends Number> observableValue, Number oldValue, Number newValue) -> {
-            flipToBestFit();
-            adjustDynamicFonts();
+            resizeScheduler.request();
         };
     
     /**
@@ -101,7 +151,7 @@ public class DynamicScreen extends AnchorPane {
      */
     DynamicScreen(String resource, DynamicScreenInterface controller, Scene parent) {
         super();
-        init(resource, controller, parent, 200, 200);
+        init(resource, controller, parent, 200, 200, false);
     }
 
     /**
@@ -122,59 +172,167 @@ public class DynamicScreen extends AnchorPane {
      */    
     DynamicScreen(String resource, DynamicScreenInterface controller, Scene parent, int x, int y) {
         super();
-        init(resource, controller, parent, x, y);
+        init(resource, controller, parent, x, y, false);
+    }
+
+    /**
+     * 
+     * Loads resources representing a single screen in various layouts
+     * and handles changing between these resources.
+     * 
+     * In lazy mode a layout and its controller instance are only created the
+     * first time that layout is displayed.
+     * 
+     * @param resource      Base name of resource file. See above for patterns.
+     * @param controller    Controller to be used for the loaded resources.
+     * @param scene         Parent scene.
+     * @param x             Pixels width at which the screen is considered slim.
+     * @param y             Pixels height at which the screen is considered slim.
+     * @param lazy          Load layouts on demand rather than up front.
+     */    
+    DynamicScreen(String resource, DynamicScreenInterface controller, Scene parent, int x, int y, boolean lazy) {
+        super();
+        init(resource, controller, parent, x, y, lazy);
     }
 
     // Loads an fxml resource
     private Pane loadPane(String resource, DynamicScreenInterface controller) {
-        URL url;
-        FXMLLoader fxm;
-
-        url = AppTemplate.class.getResource(resource);
-        if (url != null) {
-            fxm = new FXMLLoader(url);
-            if (controller != null)
-                fxm.setController(controller);
+        try {
+            return ScreenLoader.load(resource, controller);
+        } catch (Exception ex) {
+            Log.e(ex);
+        }
+        return null;
+    }
+    
+    /**
+     * 
+     * Loads the layout and controller of a variant if that has not been done yet.
+     * The controller passed to the constructor goes to the first variant loaded,
+     * the rest get a new instance.
+     * 
+     * @param v     Variant to load.
+     * @return      The pane of the variant, or null if it does not exist.
+     */
+    private Pane materialize(Variant v) {
+        if (v == null)
+            return null;
+        
+        if (!v.loaded) {
+            try (StartupTrace.Span span = StartupTrace.begin("DynamicScreen ", v.resource)) {
+                materializeVariant(v);
+            }
+        }
+        return v.pane;
+    }
+    
+    private void materializeVariant(Variant v) {
+        if (v.exists()) {
+            if (baseController != null) {
+                v.controller = baseController;
+                baseController = null;
+            } else {
+                DynamicScreenInterface prototype = getAnyController();
+                if (prototype != null)
+                    v.controller = prototype.getNewInstance(this);
+            }
+            initializing = v;
             try {
-                Pane pane = (Pane) fxm.load();
-                return pane;
-            } catch (Exception ex) {
-                Log.e(ex);
+                v.pane = loadPane(v.resource, v.controller);
+                if (v.pane != null && v.controller != null) {
+                    v.controller.onDynamicScreenInitialize(this);
+                }
+            } finally {
+                initializing = null;
             }
         }
-        controller = null;
+        v.loaded = true;
+    }
+    
+    /**
+     * 
+     * Drops the layout and controller of a variant which is not displayed,
+     * along with its dynamic font registrations. It is loaded again if it is
+     * needed later.
+     * 
+     * @param orientation   One of the OR_ constants.
+     * @return              True if a loaded layout was dropped.
+     */
+    public boolean discardOrientation(int orientation) {
+        Variant v = getVariant(orientation);
+        if (v == null || v == active || !v.loaded)
+            return false;
+        
+        boolean dropped = v.pane != null;
+        if (v.pane != null) {
+            ScreenAnimations.stop(v.pane);
+            if (v.controller instanceof ScreenLifecycle)
+                ((ScreenLifecycle) v.controller).onDispose(v.pane);
+        }
+        if (v.controller != null && getAnyControllerExcept(v) == null)
+            baseController = v.controller;  // Keep a prototype for new instances
+        v.setModelBound(false);
+        v.modelBindings.clear();
+        v.pane = null;
+        v.controller = null;
+        v.fonts.clear();
+        v.customFonts.clear();
+        v.fontScale = Double.NaN;
+        v.loaded = false;
+        return dropped;
+    }
+    
+    private Variant getVariant(int orientation) {
+        switch (orientation) {
+            case OR_PORTRAIT:
+                return portrait;
+            case OR_LANDSCAPE:
+                return landscape;
+            case OR_SLIMLANDSCAPE:
+                return slimLandscape;
+            case OR_SLIMPORTRAIT:
+                return slimPortrait;
+            case OR_TINY:
+                return tiny;
+            default:
+                return null;
+        }
+    }
+    
+    private DynamicScreenInterface getAnyControllerExcept(Variant except) {
+        if (baseController != null)
+            return baseController;
+        for (Variant v : new Variant[] {portrait, landscape, slimLandscape, slimPortrait, tiny}) {
+            if (v != except && v.controller != null)
+                return v.controller;
+        }
         return null;
     }
     
-    private void init(String resource, DynamicScreenInterface controller, Scene parent, int x, int y) {
+    // Any controller instance, used as a prototype for new instances.
+    private DynamicScreenInterface getAnyController() {
+        return getAnyControllerExcept(null);
+    }
+    
+    private void init(String resource, DynamicScreenInterface controller, Scene parent, int x, int y, boolean lazyLoad) {
         resourceName = resource;
         slimX = x;
         slimY = y;
         scene = null;
-        contPortrait = controller;
-        portrait = loadPane("/"+resource+"-port.fxml", contPortrait);
-        if (portrait != null && contPortrait != null) {
-            contPortrait.onDynamicScreenInitialize(this);
-        }
-        contLandscape = controller.getNewInstance(this);
-        landscape = loadPane("/"+resource+"-land.fxml", contLandscape);
-        if (landscape != null && contLandscape != null) {
-            contLandscape.onDynamicScreenInitialize(this);
-        }
-        contSlimLandscape = controller.getNewInstance(this);
-        slimLandscape = loadPane("/"+resource+"-lands.fxml", contSlimLandscape);
-        if (slimLandscape != null && contSlimLandscape != null) {
-            contSlimLandscape.onDynamicScreenInitialize(this);
-        }
-        contSlimPortrait = controller.getNewInstance(this);
-        slimPortrait = loadPane("/"+resource+"-ports.fxml", contSlimPortrait);
-        if (slimPortrait != null && contSlimPortrait != null) {
-            contSlimPortrait.onDynamicScreenInitialize(this);
-        }
-        contTiny = controller.getNewInstance(this);
-        tiny = loadPane("/"+resource+"-tiny.fxml", contTiny);
-        if (tiny != null && contTiny != null) {
-            contTiny.onDynamicScreenInitialize(this);
+        lazy = lazyLoad;
+        baseController = controller;
+        portrait = new Variant("-port");
+        landscape = new Variant("-land");
+        slimLandscape = new Variant("-lands");
+        slimPortrait = new Variant("-ports");
+        tiny = new Variant("-tiny");
+        
+        if (!lazy) {
+            materialize(portrait);
+            materialize(landscape);
+            materialize(slimLandscape);
+            materialize(slimPortrait);
+            materialize(tiny);
         }
         active = null;
         setScene(parent);
@@ -183,6 +341,28 @@ public class DynamicScreen extends AnchorPane {
             getController().onScreenFlip(this);
     }
 
+    /**
+     * 
+     * Enables loading of the most likely next layout (the one a rotation would
+     * select) once the screen has been idle for a moment. Only used in lazy mode.
+     * 
+     * @param enable    True to prefetch.
+     */
+    public void setPrefetch(boolean enable) {
+        prefetch = enable;
+    }
+    
+    /**
+     * 
+     * Waits until the scene has stopped changing size for the given time
+     * before re-evaluating the layout. By default this happens on the next pulse.
+     * 
+     * @param millis    Debounce window in milliseconds, 0 for none.
+     */
+    public void setResizeDebounce(double millis) {
+        resizeScheduler.setDebounce(millis);
+    }
+    
     /**
      * 
      * @return The current orientation of the screen
@@ -206,70 +386,134 @@ public class DynamicScreen extends AnchorPane {
     
     /**
      * 
-     * Makes a node the active node and adds it to the screen.
+     * Makes a variant the active one and adds it to the screen.
      * 
-     * @param screen Pane to make active and show.
+     * @param variant Variant to make active and show.
      */
-    private void flip(Pane screen) {
+    private void flip(Variant variant) {
+        Pane screen = materialize(variant);
+        
         if (screen == null) {
             Log.e("Screen is null, resource = "+resourceName);
         } else {
+                Variant previous = active;
                 if (!getChildren().isEmpty())
                     getChildren().removeAll(getChildren());
+                if (previous != null && previous != variant && previous.pane != null) {
+                    ScreenAnimations.pause(previous.pane);
+                    previous.setModelBound(false);
+                    if (shown && previous.controller instanceof ScreenLifecycle)
+                        ((ScreenLifecycle) previous.controller).onHide(previous.pane);
+                }
                 getChildren().add(screen);
                 setTopAnchor(screen, 0.0);
                 setBottomAnchor(screen, 0.0);
                 setLeftAnchor(screen, 0.0);
                 setRightAnchor(screen, 0.0);
-                active = screen;
+                active = variant;
+                active.setModelBound(true);
                 if (getController() != null)
                     getController().onScreenFlip(this);
-                adjustDynamicFonts();
+                if (active.fontScale != getFontScale())
+                    adjustDynamicFonts();
+                if (previous != variant) {
+                    ScreenAnimations.resume(screen);
+                    if (shown && active.controller instanceof ScreenLifecycle)
+                        ((ScreenLifecycle) active.controller).onShow(screen);
+                }
             // Android needs a little time, this works so there are no glitches on switch.
             Platform.runLater( () -> {
                 screen.requestFocus();
                 screen.requestLayout();
             });
+            schedulePrefetch();
         }        
     }
     
     /**
-     * Flip to a landscape configuration.
+     * Once no flip has happened for PREFETCH_DELAY, load the variant a rotation would select.
+     */
+    private void schedulePrefetch() {
+        if (!lazy || !prefetch)
+            return;
+        
+        if (prefetchTimer == null) {
+            prefetchTimer = new PauseTransition(Duration.millis(PREFETCH_DELAY));
+            prefetchTimer.setOnFinished(event -> 
+                materialize(selectBestFit(scene.getHeight(), scene.getWidth())));
+        }
+        prefetchTimer.playFromStart();
+    }
+    
+    /**
+     * Select a landscape configuration.
      */    
-    private void flipToLandscape() {
-        if ((scene.getHeight() < slimY) && (scene.getWidth() < slimX) && (tiny != null))
-            flip(tiny);
-        else if ((scene.getHeight() < slimY) && (slimLandscape != null))
-            flip(slimLandscape);
+    private Variant selectLandscape(double width, double height) {
+        if ((height < slimY) && (width < slimX) && tiny.exists())
+            return tiny;
+        else if ((height < slimY) && slimLandscape.exists())
+            return slimLandscape;
         else {
-            if (landscape == null)
+            if (!landscape.exists()) {
                 Log.e("Landscape orientation is null, resource = "+resourceName);
-            else flip(landscape);
+                return null;
+            }
+            return landscape;
         }
     }
 
     /**
-     * Flip to a portrait configuration.
+     * Select a portrait configuration.
      */
-    private void flipToPortrait() {
-        if ((scene.getHeight() < slimY) && (scene.getWidth() < slimX) && (tiny != null))
-            flip(tiny);
-        else if ((scene.getWidth() < slimX) && (slimPortrait != null))
-            flip(slimPortrait);
+    private Variant selectPortrait(double width, double height) {
+        if ((height < slimY) && (width < slimX) && tiny.exists())
+            return tiny;
+        else if ((width < slimX) && slimPortrait.exists())
+            return slimPortrait;
         else {
-            if (portrait == null)
+            if (!portrait.exists()) {
                 Log.e("Portrait orientation is null, resource = "+resourceName);
-            else flip(portrait);
+                return null;
+            }
+            return portrait;
         }
     }
 
+    /**
+     * Select the best fit configuration for the given dimensions.
+     */
+    private Variant selectBestFit(double width, double height) {
+        if (height < width)
+            return selectLandscape(width, height);
+        else return selectPortrait(width, height);
+    }
+
+    /**
+     * 
+     * Re-evaluate the layout and font sizes for the current scene size. Does
+     * nothing if neither the best fit layout nor the font scale has changed.
+     * 
+     * @param force     Flip and adjust fonts even if nothing has changed.
+     */
+    void refresh(boolean force) {
+        Variant variant = selectBestFit(scene.getWidth(), scene.getHeight());
+        
+        if (variant != null && (force || variant != active)) {
+            if (force)
+                variant.fontScale = Double.NaN;
+            flip(variant);
+        } else if (active != null && active.fontScale != getFontScale())
+            adjustDynamicFonts();
+    }
+    
     /**
      * Flip to best fit configuration.
      */
     private void flipToBestFit() {
-        if ((scene.getHeight() < scene.getWidth()))
-            flipToLandscape();
-        else flipToPortrait();
+        Variant variant = selectBestFit(scene.getWidth(), scene.getHeight());
+        
+        if (variant != null)
+            flip(variant);
     }
     
     /**
@@ -294,46 +538,167 @@ public class DynamicScreen extends AnchorPane {
      * @return The controller for the current screen orientation.
      */
     public DynamicScreenInterface getController() {
-        if (active == landscape)
-            return contLandscape;
-        if (active == portrait)
-            return contPortrait;
-        if (active == slimLandscape)
-            return contSlimLandscape;
-        if (active == slimPortrait)
-            return contSlimPortrait;
-        if (active == tiny)
-            return contTiny;
-        return null;
+        if (active == null)
+            return null;
+        return active.controller;
     }
 
     /**
      *
      * Adds a node to a list of nodes to have their font size dynamically resized.
      * 
+     * The node belongs to the layout whose controller is being initialized, or
+     * else to the layout containing it. Nodes of layouts which are not displayed
+     * are adjusted when their layout is next displayed.
+     * 
      * @param n                     Node to adjust
      * @param fontSizePortrait      Base Portrait Font Size
      * @param fontSizeLandscape     Base Landscape/Other Font Size
      */
     public void setDynamicFont(Node n, double fontSizePortrait, double fontSizeLandscape) {
-        resizeFontList.add(new NodeFontSize(n, fontSizePortrait, fontSizeLandscape));
+        Variant owner = initializing != null ? initializing : getVariantOf(n);
+        if (owner == null) {
+            Log.e("Dynamic font node is not part of a layout, resource = "+resourceName);
+            return;
+        }
+        
+        if (n instanceof DynamicNodeInterface) {
+            owner.customFonts.add((DynamicNodeInterface)n);
+            if (owner == active && !Double.isNaN(owner.fontScale))
+                ((DynamicNodeInterface)n).onSetStyle(this);
+            else
+                owner.fontScale = Double.NaN;
+        } else {
+            // Portrait uses the portrait size, every other layout the landscape size.
+            owner.fonts.add(n, owner == portrait ? fontSizePortrait : fontSizeLandscape);
+            if (owner == active && !Double.isNaN(owner.fontScale)) {
+                owner.pane.applyCss();
+                owner.fonts.setScale(owner.fontScale);
+            } else
+                owner.fontScale = Double.NaN;
+        }
     }
     
     /**
-     * If the loaded node is an instance of DynamicNodeInterface, we let 
-     * it handle it's own resizing. Otherwise we adjust based on saved settings.
+     * 
+     * @return  Values shared by every controller instance of this screen.
+     */
+    public ScreenModel getModel() {
+        return model;
+    }
+    
+    /**
+     * 
+     * Keeps a control property in step with a model property while the
+     * control's layout is displayed. Layouts which are not displayed are
+     * unbound, so input only updates the displayed controls, and catch up
+     * with the model when they are next displayed.
+     * 
+     * The control belongs to the layout whose controller is being initialized,
+     * or else to the layout containing the property's bean.
+     * 
+     * @param <T>       Type of the value.
+     * @param control   Property of a control, such as a TextField's text.
+     * @param value     Property from getModel().
+     */
+    public <T> void bindModel(Property<T> control, Property<T> value) {
+        Variant owner = initializing;
+        if (owner == null && control.getBean() instanceof Node)
+            owner = getVariantOf((Node) control.getBean());
+        if (owner == null) {
+            Log.e("Model binding is not part of a layout, resource = "+resourceName);
+            return;
+        }
+        
+        ModelBinding<T> binding = new ModelBinding<>(control, value);
+        owner.modelBindings.add(binding);
+        if (owner.modelBound)
+            binding.bind();
+    }
+    
+    // The variant whose layout contains a node, or the active one.
+    private Variant getVariantOf(Node n) {
+        for (Node p = n; p != null; p = p.getParent()) {
+            for (Variant v : new Variant[] {portrait, landscape, slimLandscape, slimPortrait, tiny}) {
+                if (v.pane != null && v.pane == p)
+                    return v;
+            }
+        }
+        return active;
+    }
+    
+    /**
+     * Adjusts the dynamic fonts of the displayed layout. If the loaded node is
+     * an instance of DynamicNodeInterface, we let it handle it's own resizing.
      */
     private void adjustDynamicFonts() {
-        Double baseSize = scene.getHeight() / 500;    
-        for (NodeFontSize nfs : resizeFontList) {
-            if (nfs.node instanceof DynamicNodeInterface)
-                ((DynamicNodeInterface)nfs.node).onSetStyle(this);
-            else if (getOrientation() > OR_PORTRAIT)
-                nfs.node.setStyle("-fx-font-size:" + baseSize * nfs.fontSizeLandscape + ";");
-            else {
-                double size = baseSize / (1 + (AppTemplate.getScreenMap().getHeight() / AppTemplate.getScreenMap().getWidth() *.05));
-                nfs.node.setStyle("-fx-font-size:" + size * nfs.fontSizePortrait + ";");
-            }                
+        if (active == null)
+            return;
+        
+        active.fontScale = getFontScale();
+        // New nodes take their font family and style from CSS before it is bound.
+        if (active.fonts.hasPending())
+            active.pane.applyCss();
+        active.fonts.setScale(active.fontScale);
+        for (DynamicNodeInterface n : active.customFonts)
+            n.onSetStyle(this);
+    }
+    
+    /**
+     * Multiplier applied to the base font sizes for the current scene size and orientation.
+     */
+    private double getFontScale() {
+        double baseSize = scene.getHeight() / 500;
+        if (getOrientation() > OR_PORTRAIT)
+            return baseSize;
+        return baseSize / (1 + (AppTemplate.getScreenMap().getHeight() / AppTemplate.getScreenMap().getWidth() *.05));
+    }
+    
+    /**
+     * The screen map shows this screen. Passed on to the controller of the displayed layout.
+     */
+    @Override
+    public void onShow(Node screen) {
+        shown = true;
+        if (active != null && active.controller instanceof ScreenLifecycle)
+            ((ScreenLifecycle) active.controller).onShow(active.pane);
+    }
+
+    @Override
+    public void onHide(Node screen) {
+        shown = false;
+        if (active != null && active.controller instanceof ScreenLifecycle)
+            ((ScreenLifecycle) active.controller).onHide(active.pane);
+    }
+
+    @Override
+    public void onPause(Node screen) {
+        if (active != null && active.controller instanceof ScreenLifecycle)
+            ((ScreenLifecycle) active.controller).onPause(active.pane);
+    }
+
+    /**
+     * Passed on to the controllers of every loaded layout.
+     */
+    @Override
+    public void onEvict(Node screen) {
+        shown = false;
+        for (Variant v : new Variant[] {portrait, landscape, slimLandscape, slimPortrait, tiny}) {
+            if (v.pane != null && v.controller instanceof ScreenLifecycle)
+                ((ScreenLifecycle) v.controller).onEvict(v.pane);
+        }
+    }
+
+    @Override
+    public void onDispose(Node screen) {
+        shown = false;
+        for (Variant v : new Variant[] {portrait, landscape, slimLandscape, slimPortrait, tiny}) {
+            if (v.pane != null) {
+                ScreenAnimations.stop(v.pane);
+                if (v.controller instanceof ScreenLifecycle)
+                    ((ScreenLifecycle) v.controller).onDispose(v.pane);
+            }
+            v.setModelBound(false);
         }
     }
     
@@ -0,0 +1,217 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.Node;
+import javafx.scene.control.Labeled;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+/**
+ *
+ * Scales the fonts of a set of nodes from a single scale factor.
+ * 
+ * Sizes are rounded to SIZE_STEP, and one Font instance is shared by every
+ * node with the same font and size, so a resize produces a small set of
+ * reusable fonts. Nodes with a font property have it bound to a shared
+ * holder per font and base size, and a holder is only updated when its
+ * rounded size changes. A bound font is not overridden by CSS, so the font
+ * family and style are taken from the node, after CSS, when the node is first
+ * scaled. Other nodes fall back to an inline -fx-font-size style, with one
+ * style string per size.
+ * 
+ * Must be used from the JavaFX Application Thread.
+ * 
+ * @author Heath Leach
+ */
+public class FontScaleEngine {
+    
+    public static final double SIZE_STEP = 0.5;    // Font sizes are rounded to this many pixels
+    
+    private static final Map<String, Font> fontCache = new ConcurrentHashMap<>();
+    private static final Map<Double, String> styleCache = new ConcurrentHashMap<>();
+    
+    // Nodes sharing a font name and base size.
+    private class FontGroup {
+        public final String name;
+        public final double baseSize;
+        public final ObjectProperty<Font> font = new SimpleObjectProperty<>();
+        public FontGroup(String name, double baseSize) {
+            this.name = name;
+            this.baseSize = baseSize;
+        }
+    }
+    
+    // A node without a font property.
+    private class StyledNode {
+        public final Node node;
+        public final double baseSize;
+        public String style = null;
+        public StyledNode(Node node, double baseSize) {
+            this.node = node;
+            this.baseSize = baseSize;
+        }
+    }
+    
+    private final HashMap<String, FontGroup> groups = new HashMap<>();
+    private final ArrayList<Node> boundNodes = new ArrayList<>();
+    private final ArrayList<StyledNode> styledNodes = new ArrayList<>();
+    private final ArrayList<Node> pendingNodes = new ArrayList<>();
+    private final ArrayList<Double> pendingSizes = new ArrayList<>();
+    private double scale = Double.NaN;
+    
+    /**
+     * 
+     * Adds a node to be scaled. It gets its font on the next call to setScale.
+     * 
+     * @param node      Node to scale.
+     * @param baseSize  Font size at a scale of 1.
+     */
+    public void add(Node node, double baseSize) {
+        pendingNodes.add(node);
+        pendingSizes.add(baseSize);
+    }
+    
+    /**
+     * 
+     * @return  True if nodes were added since the last call to setScale. Their
+     *          CSS should be applied before it, so their fonts can be captured.
+     */
+    public boolean hasPending() {
+        return !pendingNodes.isEmpty();
+    }
+    
+    /**
+     * 
+     * Applies a scale to every node. Only nodes whose rounded size changes are touched.
+     * 
+     * @param s     Scale factor.
+     */
+    public void setScale(double s) {
+        if (Double.isNaN(s) || Double.isInfinite(s))
+            return;
+        
+        scale = s;
+        bindPending();
+        for (FontGroup g : groups.values()) {
+            Font f = getFont(g.name, g.baseSize * s);
+            if (g.font.get() != f)
+                g.font.set(f);
+        }
+        for (StyledNode sn : styledNodes) {
+            String style = getStyle(sn.baseSize * s);
+            if (sn.style != style) {
+                sn.style = style;
+                sn.node.setStyle(style);
+            }
+        }
+    }
+    
+    public double getScale() {
+        return scale;
+    }
+    
+    public int size() {
+        return boundNodes.size() + styledNodes.size() + pendingNodes.size();
+    }
+    
+    /**
+     * Releases every node. Bound fonts keep their current value.
+     */
+    public void clear() {
+        for (Node n : boundNodes)
+            getFontProperty(n).unbind();
+        boundNodes.clear();
+        styledNodes.clear();
+        pendingNodes.clear();
+        pendingSizes.clear();
+        groups.clear();
+        scale = Double.NaN;
+    }
+    
+    private void bindPending() {
+        for (int i = 0; i < pendingNodes.size(); i++) {
+            Node n = pendingNodes.get(i);
+            double baseSize = pendingSizes.get(i);
+            ObjectProperty<Font> property = getFontProperty(n);
+            
+            if (property == null) {
+                styledNodes.add(new StyledNode(n, baseSize));
+            } else {
+                Font template = property.get() != null ? property.get() : Font.getDefault();
+                String key = template.getName() + "@" + baseSize;
+                FontGroup g = groups.get(key);
+                if (g == null) {
+                    g = new FontGroup(template.getName(), baseSize);
+                    groups.put(key, g);
+                }
+                property.bind(g.font);
+                boundNodes.add(n);
+            }
+        }
+        pendingNodes.clear();
+        pendingSizes.clear();
+    }
+    
+    private static ObjectProperty<Font> getFontProperty(Node n) {
+        if (n instanceof Labeled)
+            return ((Labeled) n).fontProperty();
+        if (n instanceof TextInputControl)
+            return ((TextInputControl) n).fontProperty();
+        if (n instanceof Text)
+            return ((Text) n).fontProperty();
+        return null;
+    }
+    
+    private static double round(double size) {
+        return Math.max(SIZE_STEP, Math.round(size / SIZE_STEP) * SIZE_STEP);
+    }
+    
+    /**
+     * 
+     * @param name  Full font name, as from Font.getName().
+     * @param size  Font size, rounded to SIZE_STEP.
+     * @return      Shared Font instance.
+     */
+    public static Font getFont(String name, double size) {
+        double rounded = round(size);
+        return fontCache.computeIfAbsent(name + "@" + rounded, k -> new Font(name, rounded));
+    }
+    
+    /**
+     * 
+     * @param size  Font size, rounded to SIZE_STEP.
+     * @return      Shared inline style string setting the font size.
+     */
+    public static String getStyle(double size) {
+        return styleCache.computeIfAbsent(round(size), s -> "-fx-font-size:" + s + ";");
+    }
+}
@@ -0,0 +1,238 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.Arrays;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.stage.Popup;
+
+/**
+ *
+ * Records the time between JavaFX pulses while it is running. Each frame is
+ * tagged with what was happening at the time, such as a transition and the
+ * key of its screen, so frame times and dropped frames can be read per
+ * transition. Keeps the last CAPACITY frames.
+ * 
+ * Running the monitor keeps pulses going on every frame, so it is opt-in.
+ * Must be used from the JavaFX Application Thread.
+ * 
+ * @author Heath Leach
+ */
+public class FrameMonitor {
+    
+    public static final int CAPACITY = 3600;        // About one minute at 60 fps
+    private static final long HUD_UPDATE_NANOS = 500000000;
+    private static final long MAX_GAP_NANOS = 1000000000;   // Longer gaps are idle time, not frames
+    
+    /**
+     * Frame statistics over the recorded frames.
+     */
+    public static class FrameStats {
+        public final String tag;
+        public final int frames;
+        public final int droppedFrames;
+        public final double p50Ms, p95Ms, p99Ms, maxMs;
+        public FrameStats(String tag, int frames, int droppedFrames, 
+                double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+            this.tag = tag;
+            this.frames = frames;
+            this.droppedFrames = droppedFrames;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+        }
+        @Override
+        public String toString() {
+            return String.format("%s frames %d, dropped %d, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    tag == null ? "all" : tag, frames, droppedFrames, p50Ms, p95Ms, p99Ms, maxMs);
+        }
+    }
+    
+    private final long[] durations = new long[CAPACITY];
+    private final String[] tags = new String[CAPACITY];
+    private int next = 0;
+    private int count = 0;
+    private long lastFrame = 0;
+    private long frameNanos = 1000000000 / 60;
+    private String tag = null;
+    private boolean running = false;
+    
+    private Popup hud = null;
+    private Label hudLabel = null;
+    private long lastHudUpdate = 0;
+    
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (lastFrame != 0 && now - lastFrame < MAX_GAP_NANOS)
+                record(now - lastFrame);
+            lastFrame = now;
+            if (hud != null && hud.isShowing() && now - lastHudUpdate > HUD_UPDATE_NANOS) {
+                lastHudUpdate = now;
+                updateHud();
+            }
+        }
+    };
+    
+    public void start() {
+        if (!running) {
+            running = true;
+            lastFrame = 0;
+            timer.start();
+        }
+    }
+    
+    public void stop() {
+        if (running) {
+            running = false;
+            timer.stop();
+            hideHud();
+        }
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * 
+     * @param fps   Frame rate of the display, used to count dropped frames. 60 by default.
+     */
+    public void setTargetFps(double fps) {
+        frameNanos = (long) (1000000000 / Math.max(1, fps));
+    }
+    
+    /**
+     * 
+     * @param t     Tag for the frames which follow, or null for none.
+     */
+    public void setTag(String t) {
+        tag = t;
+    }
+    
+    public String getTag() {
+        return tag;
+    }
+    
+    /**
+     * Forget the recorded frames.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        lastFrame = 0;
+        Arrays.fill(tags, null);
+    }
+    
+    private void record(long nanos) {
+        durations[next] = nanos;
+        tags[next] = tag;
+        next = (next + 1) % CAPACITY;
+        if (count < CAPACITY)
+            count++;
+    }
+    
+    /**
+     * 
+     * @return  Statistics over every recorded frame.
+     */
+    public FrameStats snapshot() {
+        return snapshot(null);
+    }
+    
+    /**
+     * 
+     * @param filter    Tag of the frames to include, or null for all.
+     * @return          Statistics over the recorded frames with that tag.
+     */
+    public FrameStats snapshot(String filter) {
+        long[] selected = new long[count];
+        int n = 0;
+        int dropped = 0;
+        
+        for (int i = 0; i < count; i++) {
+            if (filter == null || filter.equals(tags[i])) {
+                selected[n++] = durations[i];
+                dropped += Math.max(0, Math.round((double) durations[i] / frameNanos) - 1);
+            }
+        }
+        Arrays.sort(selected, 0, n);
+        return new FrameStats(filter, n, dropped, percentile(selected, n, 50), 
+                percentile(selected, n, 95), percentile(selected, n, 99), 
+                n == 0 ? 0 : selected[n - 1] / 1000000.0);
+    }
+    
+    private static double percentile(long[] sorted, int n, int p) {
+        if (n == 0)
+            return 0;
+        int index = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, index))] / 1000000.0;
+    }
+    
+    /**
+     * 
+     * Show the statistics in an overlay at the top left of a node's window.
+     * Starts the monitor if it is not running.
+     * 
+     * @param owner     Node whose window shows the overlay.
+     */
+    public void showHud(Node owner) {
+        if (owner.getScene() == null || owner.getScene().getWindow() == null) {
+            Log.e("Frame monitor HUD needs a node in a window.");
+            return;
+        }
+        if (hud == null) {
+            hudLabel = new Label();
+            hudLabel.setStyle("-fx-background-color: rgba(0,0,0,0.6); -fx-text-fill: white; -fx-padding: 4;");
+            hudLabel.setMouseTransparent(true);
+            hud = new Popup();
+            hud.getContent().add(hudLabel);
+        }
+        start();
+        updateHud();
+        Point2D origin = owner.localToScreen(0, 0);
+        hud.show(owner, origin.getX(), origin.getY());
+    }
+    
+    public void hideHud() {
+        if (hud != null)
+            hud.hide();
+    }
+    
+    public boolean isHudShowing() {
+        return hud != null && hud.isShowing();
+    }
+    
+    private void updateHud() {
+        FrameStats all = snapshot();
+        String text = all.toString();
+        if (tag != null)
+            text += "\n" + snapshot(tag);
+        hudLabel.setText(text);
+    }
+}
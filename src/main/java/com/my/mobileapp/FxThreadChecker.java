@@ -0,0 +1,116 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ *
+ * Debug aid which reports changes to a live scene graph made off the JavaFX
+ * Application Thread. It listens to the children of every parent under a root,
+ * following nodes as they are added and removed, and logs a stack trace for
+ * each change made from another thread, up to MAX_REPORTS.
+ * 
+ * A listener per parent is too much for release builds, so this is meant for
+ * debugging only. AppTemplate installs it when the apptemplate.threadChecks
+ * system property is true.
+ * 
+ * @author Heath Leach
+ */
+public class FxThreadChecker {
+    
+    public static final int MAX_REPORTS = 20;
+    public static final String ENABLE_PROPERTY = "apptemplate.threadChecks";
+    private static final String CHECKER_KEY = "com.my.mobileapp.fxThreadChecker";
+    
+    private final Parent root;
+    private final AtomicInteger violations = new AtomicInteger();
+    
+    private final ListChangeListener<Node> childrenListener = change -> {
+        if (!Platform.isFxApplicationThread())
+            report(change.getList());
+        while (change.next()) {
+            for (Node n : change.getRemoved())
+                unwatch(n);
+            for (Node n : change.getAddedSubList())
+                watch(n);
+        }
+    };
+    
+    /**
+     * 
+     * @param root  Root of the scene graph to check. Call install() to start.
+     */
+    public FxThreadChecker(Parent root) {
+        this.root = root;
+    }
+    
+    public void install() {
+        watch(root);
+    }
+    
+    public void uninstall() {
+        unwatch(root);
+    }
+    
+    /**
+     * 
+     * @return  Number of off thread changes seen.
+     */
+    public int getViolations() {
+        return violations.get();
+    }
+    
+    private void watch(Node node) {
+        if (node instanceof Parent && node.getProperties().get(CHECKER_KEY) != this) {
+            node.getProperties().put(CHECKER_KEY, this);
+            Parent p = (Parent) node;
+            p.getChildrenUnmodifiable().addListener(childrenListener);
+            for (Node child : p.getChildrenUnmodifiable())
+                watch(child);
+        }
+    }
+    
+    private void unwatch(Node node) {
+        if (node instanceof Parent && node.getProperties().get(CHECKER_KEY) == this) {
+            node.getProperties().remove(CHECKER_KEY);
+            Parent p = (Parent) node;
+            p.getChildrenUnmodifiable().removeListener(childrenListener);
+            for (Node child : p.getChildrenUnmodifiable())
+                unwatch(child);
+        }
+    }
+    
+    private void report(Object list) {
+        int count = violations.incrementAndGet();
+        if (count <= MAX_REPORTS) {
+            Log.e(new IllegalStateException("Scene graph changed off the FX Application Thread on " 
+                    + Thread.currentThread().getName() + ": " + list));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ *
+ * Runs startup work in steps spread across pulses, so the screen keeps
+ * rendering while it loads. Steps on the FX Application Thread run in order,
+ * as many per pulse as fit in FRAME_BUDGET_MS. Async steps are started in
+ * order and complete on their own, and later steps do not wait for them.
+ * 
+ * Progress is weighted by what each step cost the last time the plan ran,
+ * saved in settings, so a progress bar moves evenly. The first run uses 
+ * DEFAULT_COST_MS for every step.
+ * 
+ * Must be started from the JavaFX Application Thread.
+ * 
+ * @author Heath Leach
+ */
+public class LoadingPlan {
+    
+    public static final double FRAME_BUDGET_MS = 8;
+    public static final double DEFAULT_COST_MS = 10;
+    private static final String COST_SETTING = "loadCost.";
+    
+    private class Step {
+        public final String name;
+        public final Runnable work;
+        public final Supplier<? extends CompletableFuture<?>> asyncWork;
+        public double cost = DEFAULT_COST_MS;
+        public boolean measured = false;        // Cost was measured on an earlier run
+        public final ArrayList<Runnable> whenDone = new ArrayList<>();
+        public boolean done = false;
+        public Step(String name, Runnable work, Supplier<? extends CompletableFuture<?>> asyncWork) {
+            this.name = name;
+            this.work = work;
+            this.asyncWork = asyncWork;
+        }
+        // Settings are preloaded by start, so this reads memory.
+        public void readCost() {
+            double saved = PlatformService.getSettings().getDouble(settingName(name), Double.NaN);
+            measured = !Double.isNaN(saved);
+            cost = measured ? saved : DEFAULT_COST_MS;
+        }
+    }
+    
+    private final String planName;
+    private final ArrayList<Step> steps = new ArrayList<>();
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private DoubleConsumer progressListener = null;
+    private Consumer<String> messageListener = null;
+    private int next = 0;
+    private int pending = 0;
+    private double totalCost = 0;
+    private double doneCost = 0;
+    private boolean firstPulse = true;
+    
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            // Let the first frame render before doing any work.
+            if (firstPulse) {
+                firstPulse = false;
+                return;
+            }
+            
+            long start = System.nanoTime();
+            do {
+                runNext();
+            } while (next < steps.size() && (System.nanoTime() - start) / 1e6 < FRAME_BUDGET_MS);
+            
+            if (next >= steps.size())
+                stop();
+        }
+    };
+    
+    /**
+     * 
+     * @param name  Name of the plan, used to keep its measured costs apart.
+     */
+    public LoadingPlan(String name) {
+        planName = name;
+    }
+    
+    private String settingName(String step) {
+        return COST_SETTING + planName + "." + step;
+    }
+    
+    /**
+     * 
+     * @param name  Name of the step, shown as a message and used to save its cost.
+     * @param work  Work to run on the FX Application Thread.
+     * @return      This plan.
+     */
+    public LoadingPlan add(String name, Runnable work) {
+        steps.add(new Step(name, work, null));
+        return this;
+    }
+    
+    /**
+     * 
+     * @param name  Name of the step.
+     * @param work  Starts work on the FX Application Thread and returns a 
+     *              future for it.
+     * @return      This plan.
+     */
+    public LoadingPlan addAsync(String name, Supplier<? extends CompletableFuture<?>> work) {
+        steps.add(new Step(name, null, work));
+        return this;
+    }
+    
+    /**
+     * 
+     * Run an action as soon as a step is done, without waiting for the rest
+     * of the plan. Use it to show the first screen once it is ready.
+     * 
+     * @param name      Name of the step.
+     * @param action    Action to run on the FX Application Thread.
+     * @return          This plan.
+     */
+    public LoadingPlan whenDone(String name, Runnable action) {
+        for (Step s : steps) {
+            if (s.name.equals(name)) {
+                s.whenDone.add(action);
+                return this;
+            }
+        }
+        Log.e("No loading step named " + name);
+        return this;
+    }
+    
+    /**
+     * 
+     * @param listener  Receives progress from 0 to 1 on the FX Application Thread.
+     */
+    public void setProgressListener(DoubleConsumer listener) {
+        progressListener = listener;
+    }
+    
+    /**
+     * 
+     * @param listener  Receives the name of each step as it starts.
+     */
+    public void setMessageListener(Consumer<String> listener) {
+        messageListener = listener;
+    }
+    
+    /**
+     * 
+     * @return  Future completed on the FX Application Thread once every step is done.
+     */
+    public CompletableFuture<Void> start() {
+        List<String> names = new ArrayList<>();
+        for (Step s : steps)
+            names.add(settingName(s.name));
+        
+        // The saved costs are read off the FX Application Thread before the first step.
+        PlatformService.getSettings().preload(names)
+                .whenComplete((result, ex) -> Platform.runLater(this::begin));
+        return finished;
+    }
+    
+    private void begin() {
+        for (Step s : steps) {
+            s.readCost();
+            totalCost += s.cost;
+        }
+        pending = steps.size();
+        report();
+        if (steps.isEmpty())
+            finished.complete(null);
+        else
+            timer.start();
+    }
+    
+    private void runNext() {
+        Step step = steps.get(next++);
+        long start = System.nanoTime();
+        
+        if (messageListener != null)
+            messageListener.accept(step.name);
+        
+        try (StartupTrace.Span span = StartupTrace.begin("Loading ", step.name)) {
+            if (step.work != null) {
+                step.work.run();
+                complete(step, start);
+            } else {
+                step.asyncWork.get().whenComplete((result, ex) -> {
+                    if (ex != null)
+                        Log.e("Loading step " + step.name + " failed, " + ex.getMessage());
+                    if (Platform.isFxApplicationThread())
+                        complete(step, start);
+                    else
+                        Platform.runLater(() -> complete(step, start));
+                });
+            }
+        } catch (RuntimeException ex) {
+            Log.e(ex);
+            complete(step, start);
+        }
+    }
+    
+    private void complete(Step step, long start) {
+        if (step.done)
+            return;
+        step.done = true;
+        
+        double ms = (System.nanoTime() - start) / 1e6;
+        PlatformService.getSettings().putDouble(settingName(step.name), 
+                step.measured ? (step.cost + ms) / 2 : ms);
+        doneCost += step.cost;
+        pending--;
+        report();
+        
+        for (Runnable action : step.whenDone)
+            action.run();
+        if (pending == 0)
+            finished.complete(null);
+    }
+    
+    private void report() {
+        if (progressListener != null)
+            progressListener.accept(totalCost == 0 ? 1 : Math.min(1, doneCost / totalCost));
+    }
+}
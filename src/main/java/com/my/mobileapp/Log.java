@@ -23,24 +23,70 @@
 
 package com.my.mobileapp;
 
+import java.lang.reflect.Method;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 /**
+ * 
+ * Logging front end. Disabled calls cost a field read; enabled calls look up
+ * only the single caller frame they report and format into a reused buffer.
+ * 
+ * Debug calls on hot paths can be removed entirely at compile time:
+ * 
+ *      if (Log.DEBUG) Log.d(() -> "expensive " + thing);
  *
  * @author Heath Leach
  */
 public class Log {
     
-    private static final int LOG_NORMAL = 0;
-    private static final int LOG_VERBOSE = 1;
-    private static final int LOG_DEBUG = 2;
+    // Set to false to have javac drop every call site guarded by it.
+    public static final boolean DEBUG = true;
+    
+    public static final int LOG_NORMAL = 0;
+    public static final int LOG_VERBOSE = 1;
+    public static final int LOG_DEBUG = 2;
+    
+    private static final String NEWLINE = System.lineSeparator();
+    private static final int MAX_KEPT_BUFFER = 4096;
+    private static final long EXIT_FLUSH_MS = 2000;
     
-    private static int level = LOG_DEBUG | LOG_VERBOSE;
+    private static volatile int level = LOG_DEBUG | LOG_VERBOSE;
+    
+    private static final ThreadLocal<StringBuilder> buffer = 
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+    
+    /**
+     * 
+     * @param l Combination of LOG_NORMAL, LOG_VERBOSE and LOG_DEBUG.
+     */
+    public static void setLevel(int l) {
+        level = l;
+    }
+    
+    public static int getLevel() {
+        return level;
+    }
     
-    private static boolean isVerbose() {
+    public static boolean isVerbose() {
         return (level & LOG_VERBOSE) == LOG_VERBOSE;
     }
     
-    private static boolean isDebug() {
-        return (level & LOG_DEBUG) == LOG_DEBUG;
+    public static boolean isDebug() {
+        return DEBUG && (level & LOG_DEBUG) == LOG_DEBUG;
+    }
+    
+    // Per thread buffer, emptied for reuse. Oversized buffers are not kept.
+    private static StringBuilder buffer() {
+        StringBuilder sb = buffer.get();
+        
+        if (sb.capacity() > MAX_KEPT_BUFFER) {
+            sb = new StringBuilder(256);
+            buffer.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
     }
     
     /**
@@ -50,19 +96,20 @@ public class Log {
      * @param s String to write to log
      */
     public static void d(String s) {
-        if (isDebug()) {
-            StackTraceElement[] e = Thread.currentThread().getStackTrace();
-            StringBuilder sb = new StringBuilder();
-
-            sb.append("Debug: ");
-
-            sb.append(e[2].getClassName()).append(".").append(e[2].getMethodName())
-                .append(" Line: ").append(e[2].getLineNumber()).append(", ");
-
-            sb.append(s).append(System.lineSeparator());
+        if (isDebug())
+            logCaller("Debug: ", s, false);
+    }
 
-            PlatformService.log(sb.toString());
-        }
+    /**
+     * 
+     * Write a string to debug logging facilities. The message is only built
+     * if debug logging is enabled.
+     * 
+     * @param s Supplies the string to write to log
+     */
+    public static void d(Supplier<String> s) {
+        if (isDebug())
+            logCaller("Debug: ", s.get(), false);
     }
 
     /**
@@ -72,23 +119,17 @@ public class Log {
      * @param s String to write to log
      */
     public static void e(String s) {
-        StackTraceElement[] e = Thread.currentThread().getStackTrace();
-        StringBuilder sb = new StringBuilder();
-        
-        sb.append("Error: ");
-        
-        if (!isVerbose())
-            sb.append(e[2].getClassName()).append(".").append(e[2].getMethodName())
-              .append(" Line: ").append(e[2].getLineNumber()).append(", ");
-    
-        sb.append(s).append(System.lineSeparator());
-        
-        if (isVerbose()) {
-            for (int i = 2; i < e.length; i++)
-                sb.append(e[i].toString()).append(System.lineSeparator());
-        }
-    
-        PlatformService.log(sb.toString());
+        logCaller("Error: ", s, isVerbose());
+    }
+
+    /**
+     * 
+     * Write a string to error logging facilities. If log level > LOG_NORMAL, log stack trace as well.
+     * 
+     * @param s Supplies the string to write to log
+     */
+    public static void e(Supplier<String> s) {
+        logCaller("Error: ", s.get(), isVerbose());
     }
 
     /**
@@ -98,23 +139,7 @@ public class Log {
      * @param ex Exception to log
      */
     public static void e(Exception ex) {
-        StackTraceElement[] e = ex.getStackTrace();
-        StringBuilder sb = new StringBuilder();
-        
-        sb.append("Error: ");
-        
-        if (!isVerbose())
-            sb.append(e[0].getClassName()).append(".").append(e[0].getMethodName())
-              .append(" Line: ").append(e[0].getLineNumber()).append(", ");
-    
-        sb.append(ex.getMessage()).append(System.lineSeparator());
-        
-        if (isVerbose()) {
-            for (int i = 0; i < e.length; i++)
-                sb.append(e[i].toString()).append(System.lineSeparator());
-        }
-
-        PlatformService.log(sb.toString());
+        logException("Error: ", ex);
     }
 
     /**
@@ -124,45 +149,140 @@ public class Log {
      * @param s 
      */
     public static void f(String s) {
-        StackTraceElement[] e = Thread.currentThread().getStackTrace();
-        StringBuilder sb = new StringBuilder();
-        
-        sb.append("Fault: ");
-        
-        if (!isVerbose())
-            sb.append(e[2].getClassName()).append(".").append(e[2].getMethodName())
-              .append(" Line: ").append(e[2].getLineNumber()).append(", ");
+        logCaller("Fault: ", s, isVerbose());
+        PlatformService.flushLog(EXIT_FLUSH_MS);
+        System.exit(-1);
+    }
+
+    public static void f(Exception ex) {
+        logException("Fault: ", ex);
+        PlatformService.flushLog(EXIT_FLUSH_MS);
+        System.exit(-1);
+    }
     
-        sb.append(s).append(System.lineSeparator());
+    private static void logCaller(String prefix, String message, boolean trace) {
+        StringBuilder sb = buffer();
         
-        if (isVerbose()) {
-            for (int i = 2; i < e.length; i++)
-                sb.append(e[i].toString()).append(System.lineSeparator());
+        sb.append(prefix);
+        
+        if (trace) {
+            sb.append(message).append(NEWLINE);
+            StackTraceElement[] e = new Throwable().getStackTrace();
+            for (int i = Caller.firstOutside(e); i < e.length; i++)
+                sb.append(e[i].toString()).append(NEWLINE);
+        } else {
+            Caller.append(sb);
+            sb.append(message).append(NEWLINE);
         }
-    
+        
         PlatformService.log(sb.toString());
-        System.exit(-1);
     }
-
-    public static void f(Exception ex) {
+    
+    private static void logException(String prefix, Exception ex) {
         StackTraceElement[] e = ex.getStackTrace();
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = buffer();
         
-        sb.append("Fault: ");
+        sb.append(prefix);
         
-        if (!isVerbose())
-            sb.append(e[0].getClassName()).append(".").append(e[0].getMethodName())
-              .append(" Line: ").append(e[0].getLineNumber()).append(", ");
+        if (!isVerbose() && e.length > 0)
+            appendFrame(sb, e[0].getClassName(), e[0].getMethodName(), e[0].getLineNumber());
     
-        sb.append(ex.getMessage()).append(System.lineSeparator());
+        sb.append(ex.getMessage()).append(NEWLINE);
         
         if (isVerbose()) {
             for (int i = 0; i < e.length; i++)
-                sb.append(e[i].toString()).append(System.lineSeparator());
+                sb.append(e[i].toString()).append(NEWLINE);
         }
 
         PlatformService.log(sb.toString());
-        System.exit(-1);
+    }
+    
+    private static void appendFrame(StringBuilder sb, String className, String methodName, int line) {
+        sb.append(className).append(".").append(methodName)
+          .append(" Line: ").append(line).append(", ");
+    }
+    
+    /**
+     * Finds the first frame outside of this class. StackWalker (Java 9+) only 
+     * materializes the frames it visits, so it is used when the runtime has 
+     * it. It is reached through reflection as this code still targets Java 8.
+     */
+    private static class Caller {
+        
+        private static final String LOG_CLASS = Log.class.getName();
+        private static final String CALLER_CLASS = Caller.class.getName();
+        
+        private static final Object walker;
+        private static final Method walk;
+        private static final Method getClassName;
+        private static final Method getMethodName;
+        private static final Method getLineNumber;
+        
+        static {
+            Object w = null;
+            Method wk = null, cn = null, mn = null, ln = null;
+            
+            try {
+                Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+                Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+                w = walkerClass.getMethod("getInstance").invoke(null);
+                wk = walkerClass.getMethod("walk", Function.class);
+                cn = frameClass.getMethod("getClassName");
+                mn = frameClass.getMethod("getMethodName");
+                ln = frameClass.getMethod("getLineNumber");
+            } catch (Exception ex) {
+                w = null;
+            }
+            walker = w;
+            walk = wk;
+            getClassName = cn;
+            getMethodName = mn;
+            getLineNumber = ln;
+        }
+        
+        private static boolean isInternal(String className) {
+            return LOG_CLASS.equals(className) || CALLER_CLASS.equals(className);
+        }
+        
+        static int firstOutside(StackTraceElement[] e) {
+            for (int i = 0; i < e.length; i++) {
+                if (!isInternal(e[i].getClassName()))
+                    return i;
+            }
+            return e.length;
+        }
+        
+        static void append(StringBuilder sb) {
+            if (walker != null) {
+                try {
+                    Function<Stream<Object>, Object> first = frames -> 
+                        frames.filter(f -> !isInternal(invoke(getClassName, f).toString()))
+                              .findFirst().orElse(null);
+                    Object frame = walk.invoke(walker, first);
+                    if (frame != null) {
+                        appendFrame(sb, invoke(getClassName, frame).toString(), 
+                                invoke(getMethodName, frame).toString(),
+                                (Integer) invoke(getLineNumber, frame));
+                    }
+                    return;
+                } catch (Exception ex) {
+                    // Fall through to the Throwable based lookup.
+                }
+            }
+            
+            StackTraceElement[] e = new Throwable().getStackTrace();
+            int i = firstOutside(e);
+            if (i < e.length)
+                appendFrame(sb, e[i].getClassName(), e[i].getMethodName(), e[i].getLineNumber());
+        }
+        
+        private static Object invoke(Method m, Object target) {
+            try {
+                return m.invoke(target);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
     }
 
 }
@@ -0,0 +1,219 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.function.BiConsumer;
+
+/**
+ * 
+ * Writes log text into a fixed set of memory mapped segment files, reusing
+ * the oldest segment when the newest one is full. Mapped pages belong to the
+ * operating system, so records survive a crash of the app without a sync per
+ * write.
+ * 
+ * Segment layout, big endian:
+ * 
+ *      int     MAGIC
+ *      int     VERSION
+ *      long    Sequence number, increasing across segments
+ *      records...
+ * 
+ * Record layout:
+ * 
+ *      int     Length of text in bytes, 0 marks the end of the segment
+ *      long    Time in milliseconds since the epoch
+ *      byte[]  UTF-8 text
+ * 
+ * The length is written last, so a record cut short by a crash is never read.
+ *
+ * @author Heath Leach
+ */
+public class LogFileAppender {
+    
+    static final int MAGIC = 0x41544c47;                    // "ATLG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_OVERHEAD = 12;
+    static final String SEGMENT_PREFIX = "log-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    private final File directory;
+    private final int segmentSize;
+    private final int segmentCount;
+    private MappedByteBuffer buffer = null;
+    private int segment;
+    private long sequence;
+    
+    /**
+     * 
+     * Opens the segments in a directory, starting a new segment after the
+     * newest one found.
+     * 
+     * @param dir           Directory to keep the segments in.
+     * @param segmentSize   Size of each segment in bytes.
+     * @param segmentCount  Number of segments to rotate through.
+     * @throws IOException  If the directory or segment cannot be created.
+     */
+    public LogFileAppender(File dir, int segmentSize, int segmentCount) throws IOException {
+        this.directory = dir;
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+        
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create log directory " + dir);
+        
+        long newest = -1;
+        int newestSegment = -1;
+        for (int i = 0; i < segmentCount; i++) {
+            long seq = readSequence(segmentFile(i));
+            if (seq > newest) {
+                newest = seq;
+                newestSegment = i;
+            }
+        }
+        
+        segment = newestSegment;
+        sequence = newest;
+        rotate();
+    }
+    
+    /**
+     * 
+     * Append text to the current segment, moving to the next segment if it
+     * does not fit. Text longer than a segment is truncated.
+     * 
+     * @param time  Time of the record in milliseconds since the epoch.
+     * @param text  Text of the record.
+     * @throws IOException  If the next segment cannot be mapped.
+     */
+    public synchronized void append(long time, String text) throws IOException {
+        if (text.isEmpty())
+            return;
+        
+        byte[] bytes = text.getBytes(UTF8);
+        int length = Math.min(bytes.length, segmentSize - HEADER_SIZE - RECORD_OVERHEAD - 4);
+        
+        if (buffer.remaining() < RECORD_OVERHEAD + length + 4)
+            rotate();
+        
+        int start = buffer.position();
+        buffer.position(start + 4);
+        buffer.putLong(time);
+        buffer.put(bytes, 0, length);
+        buffer.putInt(buffer.position(), 0);
+        buffer.putInt(start, length);
+    }
+    
+    /**
+     * 
+     * @return  The directory the segments are kept in.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    
+    private File segmentFile(int i) {
+        return new File(directory, SEGMENT_PREFIX + i + SEGMENT_SUFFIX);
+    }
+    
+    private void rotate() throws IOException {
+        segment = (segment + 1) % segmentCount;
+        sequence++;
+        
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(segment), "rw")) {
+            // A reused segment may still be mapped from its last turn, which
+            // Windows will not resize, so only new segments are sized.
+            if (file.length() != segmentSize)
+                file.setLength(segmentSize);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(sequence);
+        buffer.putInt(HEADER_SIZE, 0);
+    }
+    
+    // Plain reads, so no mapping is left holding the file open.
+    private static ByteBuffer read(File f) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+    }
+    
+    /**
+     * 
+     * @param f     Segment file.
+     * @return      Sequence number of the segment, or -1 if it is missing or invalid.
+     */
+    public static long readSequence(File f) {
+        if (!f.isFile() || f.length() < HEADER_SIZE)
+            return -1;
+        
+        try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+            if (file.readInt() != MAGIC || file.readInt() != VERSION)
+                return -1;
+            return file.readLong();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+    
+    /**
+     * 
+     * Read every complete record in a segment.
+     * 
+     * @param f         Segment file.
+     * @param records   Receives the time and text of each record.
+     * @throws IOException  If the file cannot be read.
+     */
+    public static void readRecords(File f, BiConsumer<Long, String> records) throws IOException {
+        if (readSequence(f) < 0)
+            return;
+        
+        ByteBuffer b = read(f);
+        b.position(HEADER_SIZE);
+        
+        while (b.remaining() >= RECORD_OVERHEAD) {
+            int length = b.getInt();
+            if (length <= 0 || length > b.remaining() - 8)
+                break;
+            long time = b.getLong();
+            byte[] bytes = new byte[length];
+            b.get(bytes);
+            records.accept(time, new String(bytes, UTF8));
+        }
+    }
+}
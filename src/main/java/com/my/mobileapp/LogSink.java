@@ -0,0 +1,304 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 
+ * Asynchronous log sink. Any thread can enqueue records into a lock free
+ * bounded ring buffer; a single drainer thread batches them into as few
+ * writes to the target as possible.
+ * 
+ * The ring is the bounded multi producer queue described by Dmitry Vyukov,
+ * where each slot carries a sequence number telling producers and consumers
+ * whose turn it is.
+ * 
+ * Each record carries the time it was queued. An optional record target is
+ * handed every record on its own with that time, for destinations that keep
+ * records apart, while the batch target still gets them joined together.
+ *
+ * @author Heath Leach
+ */
+public class LogSink {
+    
+    /**
+     * What to do with a record when the ring is full.
+     * 
+     * DROP_OLDEST  Discard the oldest queued record to make room.
+     * BLOCK        Wait for the drainer to make room.
+     * SAMPLE       Once the ring is three quarters full keep only every
+     *              SAMPLE_RATE-th record, and drop new records when full.
+     */
+    public enum OverflowPolicy { DROP_OLDEST, BLOCK, SAMPLE }
+    
+    private static final int CAPACITY = 1024;                // Must be a power of 2
+    private static final int MAX_BATCH_CHARS = 4000;         // Android's logcat truncates longer entries
+    private static final int SAMPLE_RATE = 8;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
+    private final int mask = CAPACITY - 1;
+    private final AtomicReferenceArray<Record> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLongArray sequence = new AtomicLongArray(CAPACITY);
+    private final AtomicLong head = new AtomicLong();        // Next position to take
+    private final AtomicLong tail = new AtomicLong();        // Next position to fill
+    
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    
+    private final Consumer<String> target;
+    private final ObjLongConsumer<String> records;
+    private final Thread drainer;
+    private volatile boolean draining = false;
+    private volatile OverflowPolicy policy = OverflowPolicy.DROP_OLDEST;
+    
+    /**
+     * 
+     * @param target    Receives batches of records on the drainer thread.
+     */
+    public LogSink(Consumer<String> target) {
+        this(target, null);
+    }
+    
+    /**
+     * 
+     * @param target    Receives batches of records on the drainer thread.
+     * @param records   Receives each record with the time it was queued in 
+     *                  milliseconds since the epoch, also on the drainer 
+     *                  thread, or null.
+     */
+    public LogSink(Consumer<String> target, ObjLongConsumer<String> records) {
+        this.target = target;
+        this.records = records;
+        
+        for (int i = 0; i < CAPACITY; i++)
+            sequence.set(i, i);
+        
+        drainer = new Thread(this::drain, "log-sink");
+        drainer.setDaemon(true);
+        drainer.start();
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000)));
+    }
+    
+    public void setOverflowPolicy(OverflowPolicy p) {
+        policy = p;
+    }
+    
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+    
+    /**
+     * 
+     * @return  Number of records accepted into the ring since startup.
+     */
+    public long getQueued() {
+        return queued.get();
+    }
+    
+    /**
+     * 
+     * @return  Number of records lost to the overflow policy since startup.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    /**
+     * 
+     * @return  Number of records currently waiting to be written.
+     */
+    public int getPending() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+    
+    /**
+     * 
+     * Queue a record for writing. Never blocks unless the policy is BLOCK.
+     * 
+     * @param text  Record to write.
+     */
+    public void log(String text) {
+        Record record = new Record(text, System.currentTimeMillis());
+        
+        if (Thread.currentThread() == drainer) {
+            // Logging from inside the target, write it straight through.
+            target.accept(text);
+            deliver(record);
+            return;
+        }
+        
+        OverflowPolicy p = policy;
+        
+        if (p == OverflowPolicy.SAMPLE && getPending() >= CAPACITY * 3 / 4 
+                && sampled.incrementAndGet() % SAMPLE_RATE != 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        
+        while (!offer(record)) {
+            if (p == OverflowPolicy.DROP_OLDEST) {
+                if (poll() != null)
+                    dropped.incrementAndGet();
+            } else if (p == OverflowPolicy.BLOCK) {
+                LockSupport.unpark(drainer);
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            } else {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        
+        queued.incrementAndGet();
+        LockSupport.unpark(drainer);
+    }
+    
+    /**
+     * 
+     * Wait for everything queued so far to be written.
+     * 
+     * @param timeoutMs Longest time to wait in milliseconds.
+     * @return          True if everything was written in time.
+     */
+    public boolean flush(long timeoutMs) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        
+        if (Thread.currentThread() == drainer)
+            return false;
+        
+        while (head.get() < target || draining) {
+            if (System.nanoTime() > deadline)
+                return false;
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return true;
+    }
+    
+    private boolean offer(Record record) {
+        long pos = tail.get();
+        
+        for (;;) {
+            int index = (int) (pos & mask);
+            long diff = sequence.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, record);
+                    sequence.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+    
+    private Record poll() {
+        long pos = head.get();
+        
+        for (;;) {
+            int index = (int) (pos & mask);
+            long diff = sequence.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Record record = slots.get(index);
+                    slots.set(index, null);
+                    sequence.set(index, pos + CAPACITY);
+                    return record;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+    
+    private void drain() {
+        StringBuilder batch = new StringBuilder(MAX_BATCH_CHARS);
+        
+        for (;;) {
+            draining = true;
+            Record record = poll();
+            while (record != null) {
+                if (batch.length() > 0 && batch.length() + record.text.length() > MAX_BATCH_CHARS) {
+                    write(batch);
+                }
+                batch.append(record.text);
+                deliver(record);
+                record = poll();
+            }
+            if (batch.length() > 0)
+                write(batch);
+            draining = false;
+            
+            if (head.get() == tail.get())
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+    
+    private void write(StringBuilder batch) {
+        try {
+            target.accept(batch.toString());
+        } catch (RuntimeException ex) {
+            System.err.print(batch);
+        }
+        batch.setLength(0);
+    }
+    
+    private void deliver(Record record) {
+        if (records == null)
+            return;
+        
+        try {
+            records.accept(record.text, record.time);
+        } catch (RuntimeException ex) {
+            System.err.println(ex);
+        }
+    }
+    
+    private static final class Record {
+        final String text;
+        final long time;
+        
+        Record(String text, long time) {
+            this.text = text;
+            this.time = time;
+        }
+    }
+}
@@ -25,9 +25,6 @@ package com.my.mobileapp;
 
 import java.net.URL;
 import java.util.ResourceBundle;
-import javafx.beans.binding.Bindings;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
@@ -39,8 +36,8 @@ import javafx.scene.input.MouseEvent;
  * Example FXML Controller class for a DynamicScreen
  * 
  * Keep in mind that there is an instance of this class for each of
- * the fxml files loaded by a DynamicScreen. Some considerations need
- * to be taken to synchronize things that change across all the instances.
+ * the fxml files loaded by a DynamicScreen. Values that should be the
+ * same across all the instances are kept in the screen's model.
  *
  * @author Heath Leach
  */
@@ -50,9 +47,6 @@ public class MainController implements Initializable, DynamicScreenInterface {
     @FXML Button testButton;
     @FXML TextField testTextField;    
     
-    // I used this to synchronize textfields across all the instances.
-    private static StringProperty testTextFieldProperty = new SimpleStringProperty();
-    
     /**
      * Initializes the controller class.
      *
@@ -61,18 +55,12 @@ public class MainController implements Initializable, DynamicScreenInterface {
      */
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        // We need to bind the textField to a static property to keep the text fields
-        // synchronized across the DynamicScreen. This will happen for each instance 
-        // that is created.
-        Bindings.bindBidirectional(testTextField.textProperty(), testTextFieldProperty);
- 
-        testTextFieldProperty.set("This TextField spans multiple columns.");
     }
 
     @FXML
     public void onClickFlipToStaticExample(MouseEvent event) {
         // We associate this function with the button in the fxml.
-        AppTemplate.getScreenMap().flipScreen("static");
+        AppTemplate.getScreenMap().pushScreen("static", ScreenTransition.SLIDE_LEFT);
     }
 
     // When a DynamicScreen changes rotation, it calls back to this function. 
@@ -103,6 +91,11 @@ public class MainController implements Initializable, DynamicScreenInterface {
         caller.setDynamicFont(testLabel, 12, 20);
         caller.setDynamicFont(testButton, 18, 24);
         caller.setDynamicFont(testTextField, 14, 20);
+        
+        // The text field is kept synchronized across the DynamicScreen through
+        // its model. Only the displayed layout's text field is bound.
+        caller.bindModel(testTextField.textProperty(),
+                caller.getModel().stringProperty("testText", "This TextField spans multiple columns."));
     }
 
 }
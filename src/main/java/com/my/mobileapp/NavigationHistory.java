@@ -0,0 +1,156 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ * Back stack of a ScreenMapPane. Each entry is the key of a screen which was
+ * left and the transition used to leave it, which is all that is needed to 
+ * return to it. The pane keeps the screens of the top entries live, and lets 
+ * the screens of lower entries be dropped and rebuilt when they are returned to.
+ * 
+ * @author Heath Leach
+ */
+public class NavigationHistory {
+    
+    /**
+     * A screen to return to.
+     */
+    public static class Entry {
+        public final String key;
+        public final ScreenTransition transition;
+        public final long msecs;
+        public Entry(String key, ScreenTransition transition, long msecs) {
+            this.key = key;
+            this.transition = transition;
+            this.msecs = msecs;
+        }
+    }
+    
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private int maxDepth = 32;
+    private int liveDepth = 2;
+    
+    /**
+     * 
+     * @param entry     Entry to push.
+     * @return          Entries dropped from the bottom to keep within the maximum depth.
+     */
+    List<Entry> push(Entry entry) {
+        ArrayList<Entry> dropped = new ArrayList<>();
+        entries.push(entry);
+        while (entries.size() > maxDepth)
+            dropped.add(entries.removeLast());
+        return dropped;
+    }
+    
+    Entry pop() {
+        return entries.poll();
+    }
+    
+    /**
+     * 
+     * @param key   Screen key.
+     * @return      True if any entries for the key were removed.
+     */
+    boolean remove(String key) {
+        return entries.removeIf(e -> e.key.equals(key));
+    }
+    
+    public Entry peek() {
+        return entries.peek();
+    }
+    
+    public void clear() {
+        entries.clear();
+    }
+    
+    public int getDepth() {
+        return entries.size();
+    }
+    
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    /**
+     * 
+     * @param key   Screen key.
+     * @return      True if the key is one of the top live entries.
+     */
+    public boolean isLive(String key) {
+        Iterator<Entry> it = entries.iterator();
+        for (int i = 0; i < liveDepth && it.hasNext(); i++) {
+            if (it.next().key.equals(key))
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 
+     * @return  Keys of entries below the live ones, which are not also live.
+     */
+    List<String> getRestorableKeys() {
+        ArrayList<String> keys = new ArrayList<>();
+        Iterator<Entry> it = entries.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            String key = it.next().key;
+            if (i >= liveDepth && !isLive(key) && !keys.contains(key))
+                keys.add(key);
+        }
+        return keys;
+    }
+    
+    /**
+     * 
+     * @param depth     Most entries kept. Older entries are dropped.
+     */
+    public void setMaxDepth(int depth) {
+        maxDepth = Math.max(1, depth);
+        while (entries.size() > maxDepth)
+            entries.removeLast();
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * 
+     * @param depth     Number of top entries whose screens are kept in memory.
+     */
+    public void setLiveDepth(int depth) {
+        liveDepth = Math.max(0, depth);
+    }
+    
+    public int getLiveDepth() {
+        return liveDepth;
+    }
+}
@@ -0,0 +1,226 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 
+ * Runs platform calls which may block, such as opening a browser or starting
+ * a process, away from the FX Application Thread.
+ * 
+ * Work runs on virtual threads when the runtime has them and on a small pool
+ * of daemon threads otherwise. Futures from submit can be cancelled, which
+ * interrupts the work if it has started and skips it if it has not, and can
+ * be given a timeout after which they fail with a TimeoutException.
+ *
+ * @author Heath Leach
+ */
+public class PlatformExecutor {
+    
+    private static final int POOL_SIZE = 2;
+    private static final long IDLE_SECONDS = 30;
+    
+    private static ExecutorService executor = null;
+    private static ScheduledExecutorService timer = null;
+    private static boolean virtual = false;
+    
+    /**
+     * 
+     * Runs tasks one at a time in the order given, on the platform executor.
+     * For calls such as keyboard changes where a later call must not overtake
+     * an earlier one.
+     */
+    public static class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active = null;
+        
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    next();
+                }
+            });
+            if (active == null)
+                next();
+        }
+        
+        private synchronized void next() {
+            active = tasks.poll();
+            if (active != null)
+                getExecutor().execute(active);
+        }
+    }
+    
+    /**
+     * 
+     * @return  The shared executor for platform calls.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = createVirtualExecutor();
+            virtual = executor != null;
+            
+            if (executor == null) {
+                AtomicInteger count = new AtomicInteger();
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 
+                        IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "platform-io-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+                pool.allowCoreThreadTimeOut(true);
+                executor = pool;
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * 
+     * @return  True if platform calls run on virtual threads.
+     */
+    public static synchronized boolean isVirtual() {
+        getExecutor();
+        return virtual;
+    }
+    
+    // Looked up by name so the code still builds and runs on Java 8 and mobile runtimes.
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception | LinkageError ex) {
+            return null;
+        }
+    }
+    
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "platform-io-timeout");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return timer;
+    }
+    
+    /**
+     * 
+     * Run work on the platform executor.
+     * 
+     * @param <T>       Type of the result.
+     * @param name      Name of the work for timeout messages.
+     * @param work      Work to run.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @return          Future for the result.
+     */
+    public static <T> CompletableFuture<T> submit(String name, Callable<T> work, long timeoutMs) {
+        return submit(name, work, timeoutMs, getExecutor());
+    }
+    
+    /**
+     * 
+     * Run work on the given executor, usually a SerialExecutor.
+     * 
+     * @param <T>       Type of the result.
+     * @param name      Name of the work for timeout messages.
+     * @param work      Work to run.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @param runner    Executor to run the work on.
+     * @return          Future for the result.
+     */
+    public static <T> CompletableFuture<T> submit(String name, Callable<T> work, long timeoutMs, Executor runner) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread[] worker = new Thread[1];
+        
+        runner.execute(() -> {
+            synchronized (worker) {
+                if (result.isDone())
+                    return;
+                worker[0] = Thread.currentThread();
+            }
+            try {
+                result.complete(work.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                synchronized (worker) {
+                    worker[0] = null;
+                    // Clear an interrupt that arrived after the work finished.
+                    Thread.interrupted();
+                }
+            }
+        });
+        
+        result.whenComplete((value, ex) -> {
+            if (ex instanceof CancellationException || ex instanceof TimeoutException) {
+                synchronized (worker) {
+                    if (worker[0] != null)
+                        worker[0].interrupt();
+                }
+            }
+        });
+        
+        return withTimeout(result, name, timeoutMs);
+    }
+    
+    /**
+     * 
+     * Fail a future with a TimeoutException if it is not done in time.
+     * 
+     * @param <T>       Type of the result.
+     * @param future    Future to limit.
+     * @param name      Name of the work for the timeout message.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @return          The same future.
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, String name, long timeoutMs) {
+        if (timeoutMs > 0 && !future.isDone()) {
+            ScheduledFuture<?> timeout = getTimer().schedule(() -> 
+                    future.completeExceptionally(new TimeoutException(name + " took longer than " + timeoutMs + " ms")),
+                    timeoutMs, TimeUnit.MILLISECONDS);
+            future.whenComplete((value, ex) -> timeout.cancel(false));
+        }
+        return future;
+    }
+}
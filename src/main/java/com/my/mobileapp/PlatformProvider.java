@@ -23,6 +23,9 @@
 
 package com.my.mobileapp;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  *
  * @author Heath Leach
@@ -30,9 +33,11 @@ package com.my.mobileapp;
 public interface PlatformProvider {
     String getSetting(String name);
     void saveSetting(String name, String value);
+    void saveSettings(Map<String, String> values);
     void sendMessage(String text);
     void openBrowser(String url);
     void log(String text);
+    String getLogDirectory();
     boolean isIOS();
     boolean isAndroid();
     boolean isDesktop();
@@ -40,5 +45,6 @@ public interface PlatformProvider {
     void showOnScreenKeyboard();
     void platformRun(String exec);
     boolean existsForRun(String exec);
+    Map<String, Boolean> existsForRun(Collection<String> execs);
     Object test();
 }
@@ -28,15 +28,59 @@ package com.my.mobileapp;
  * @author Heath Leach
  */
 
-import java.util.Iterator;
-import java.util.ServiceLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class PlatformService {
 
-    private static PlatformService instance = getInstance();
+    /**
+     * Provider index written by the build for each platform, in selection order.
+     * See generateProviderIndex tasks in build.gradle.
+     */
+    public static final String PROVIDER_INDEX = "platform-providers.properties";
     
-    private final ServiceLoader<PlatformProvider> serviceLoader;
-    private static PlatformProvider provider;
+    /**
+     * System property naming a provider class to use ahead of the index.
+     */
+    public static final String PROVIDER_PROPERTY = "apptemplate.platformProvider";
+    
+    // Declared ahead of the provider so it exists while the provider is being resolved.
+    private static final LogSink logSink = new LogSink(PlatformService::writeLog, PlatformService::writeLogRecord);
+    
+    private static PlatformService instance;
+    
+    private static final int LOG_SEGMENT_SIZE = 256 * 1024;
+    private static final int LOG_SEGMENT_COUNT = 8;
+    
+    private static volatile LogFileAppender logFile;
+    private static volatile long resolutionNanos = -1;
+    private static volatile long asyncTimeoutMs = 10000;
+    
+    // Keyboard calls must not overtake each other.
+    private static final Executor keyboardCalls = new PlatformExecutor.SerialExecutor();
+    
+    private static final SettingsStore settings = new SettingsStore(
+            name -> getProvider() == null ? "" : getProvider().getSetting(name),
+            values -> {
+                if (getProvider() != null)
+                    getProvider().saveSettings(values);
+            });
+    
+    // The provider is resolved the first time it is used, not when the class loads.
+    private static class ProviderHolder {
+        static final PlatformProvider provider = resolveProvider();
+    }
 
     public static synchronized PlatformService getInstance() {
         if (instance == null) {
@@ -46,88 +90,374 @@ public class PlatformService {
     }
 
     private PlatformService() {
-        serviceLoader = ServiceLoader.load(PlatformProvider.class);
-
-        Iterator<PlatformProvider> iterator = serviceLoader.iterator();
-        while (iterator.hasNext()) {
-            if (provider == null) {
-                provider = iterator.next();
+    }
+    
+    /**
+     * 
+     * The provider for this platform, resolved on first use from the build's
+     * provider index. The class named by the apptemplate.platformProvider
+     * system property is tried first, then the index entries in order; the
+     * first that can be created is used. Nothing is scanned at runtime.
+     * 
+     * @return The platform provider, or null if none could be created.
+     */
+    public static PlatformProvider getProvider() {
+        return ProviderHolder.provider;
+    }
+    
+    /**
+     * 
+     * @return Nanoseconds spent resolving the provider, or -1 if not resolved yet.
+     */
+    public static long getResolutionNanos() {
+        return resolutionNanos;
+    }
+    
+    private static PlatformProvider resolveProvider() {
+        long start = System.nanoTime();
+        try (StartupTrace.Span span = StartupTrace.begin("PlatformProvider resolution")) {
+            for (String name : getProviderNames()) {
+                PlatformProvider candidate = createProvider(name);
+                if (candidate != null) {
+                    Log.d(() -> "PlatformProvider " + name + " selected");
+                    return candidate;
+                }
             }
-        }
-
-        if (provider == null) {
+            
             Log.e("No PlatformProvider implementation could be found!");
+            return null;
+        } finally {
+            resolutionNanos = System.nanoTime() - start;
+        }
+    }
+    
+    private static List<String> getProviderNames() {
+        List<String> names = new ArrayList<>();
+        
+        String selected = System.getProperty(PROVIDER_PROPERTY);
+        if (selected != null && !selected.trim().isEmpty())
+            names.add(selected.trim());
+        
+        Properties index = new Properties();
+        try (InputStream in = PlatformService.class.getResourceAsStream(PROVIDER_INDEX)) {
+            if (in != null)
+                index.load(in);
+        } catch (IOException ex) {
+            Log.e(ex);
+        }
+        
+        for (String name : index.getProperty("providers", "").split(",")) {
+            name = name.trim();
+            if (!name.isEmpty() && !names.contains(name))
+                names.add(name);
+        }
+        return names;
+    }
+    
+    private static PlatformProvider createProvider(String name) {
+        try {
+            Class<?> type = Class.forName(name, true, PlatformService.class.getClassLoader());
+            if (!PlatformProvider.class.isAssignableFrom(type)) {
+                Log.e(name + " is not a PlatformProvider");
+                return null;
+            }
+            return (PlatformProvider) type.newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            Log.e("PlatformProvider " + name + " could not be created: " + ex);
+            return null;
         }
     }
      
+    /**
+     * 
+     * Settings are cached in memory and written behind on a background thread.
+     * The store also has typed accessors, transactions and flush().
+     * 
+     * @return The settings store.
+     */
+    public static SettingsStore getSettings() {
+        return settings;
+    }
+    
     public static String getSetting(String name) {
-        return provider == null ? "" : provider.getSetting(name);
+        return settings.getString(name);
     }
     
     public static void saveSetting(String name, String value) {
-        if (provider != null)
-            provider.saveSetting(name, value);
+        settings.putString(name, value);
+    }
+    
+    /**
+     * 
+     * Settings are read from storage on the settings thread the first time.
+     * 
+     * @param name  Setting name.
+     * @return      Future for the value.
+     */
+    public static CompletableFuture<String> getSettingAsync(String name) {
+        return PlatformExecutor.withTimeout(settings.getStringAsync(name), "getSetting", asyncTimeoutMs);
+    }
+    
+    /**
+     * 
+     * @param name  Setting name.
+     * @param value Value to save.
+     * @return      Future completed once the value has been written to storage.
+     */
+    public static CompletableFuture<Void> saveSettingAsync(String name, String value) {
+        return PlatformExecutor.withTimeout(settings.edit().putString(name, value).commit(), 
+                "saveSetting", asyncTimeoutMs);
     }
     
     public static void sendMessage(String text) {
-        if (provider != null)
-            provider.sendMessage(text);
+        if (getProvider() != null)
+            getProvider().sendMessage(text);
+    }
+    
+    public static CompletableFuture<Void> sendMessageAsync(String text) {
+        return runAsync("sendMessage", p -> p.sendMessage(text));
     }
     
     public static void openBrowser(String url) {
-        if (provider != null)
-            provider.openBrowser(url);
+        if (getProvider() != null)
+            getProvider().openBrowser(url);
+    }
+    
+    public static CompletableFuture<Void> openBrowserAsync(String url) {
+        return runAsync("openBrowser", p -> p.openBrowser(url));
+    }
+    
+    /**
+     * 
+     * Call the provider on a platform thread. The future fails with a
+     * TimeoutException if the call takes longer than the timeout, and
+     * cancelling it interrupts the call.
+     * 
+     * @param <T>       Type of the result.
+     * @param name      Name of the call for timeout messages.
+     * @param call      Call to make on the provider.
+     * @param timeoutMs Time allowed in milliseconds, or 0 for no limit.
+     * @return          Future for the result, completed with null if there is no provider.
+     */
+    public static <T> CompletableFuture<T> callAsync(String name, Function<PlatformProvider, T> call, long timeoutMs) {
+        return callAsync(name, call, timeoutMs, PlatformExecutor.getExecutor());
+    }
+    
+    private static <T> CompletableFuture<T> callAsync(String name, Function<PlatformProvider, T> call, 
+            long timeoutMs, Executor runner) {
+        return PlatformExecutor.submit(name, () -> {
+            PlatformProvider p = getProvider();
+            return p == null ? null : call.apply(p);
+        }, timeoutMs, runner);
     }
     
+    private static CompletableFuture<Void> runAsync(String name, Consumer<PlatformProvider> call) {
+        return callAsync(name, p -> {
+            call.accept(p);
+            return null;
+        }, asyncTimeoutMs);
+    }
+    
+    /**
+     * 
+     * @param timeoutMs Time allowed for async platform calls in milliseconds, or 0 for no limit.
+     */
+    public static void setAsyncTimeout(long timeoutMs) {
+        asyncTimeoutMs = timeoutMs;
+    }
+    
+    public static long getAsyncTimeout() {
+        return asyncTimeoutMs;
+    }
+    
+    /**
+     * 
+     * Queue text for the platform log. It is written by a background thread
+     * so the caller, usually the FX Application Thread, never waits on it.
+     * 
+     * @param text Text to log
+     */
     public static void log(String text) {
-        if (provider != null)
-            provider.log(text);
+        logSink.log(text);
+    }
+    
+    /**
+     * 
+     * Wait for queued log text to be written.
+     * 
+     * @param timeoutMs Longest time to wait in milliseconds.
+     * @return          True if everything was written in time.
+     */
+    public static boolean flushLog(long timeoutMs) {
+        return logSink.flush(timeoutMs);
+    }
+    
+    /**
+     * 
+     * @return The sink log text is queued in, for its counters and overflow policy.
+     */
+    public static LogSink getLogSink() {
+        return logSink;
+    }
+    
+    /**
+     * 
+     * Also write log text to rotating files in the provider's log directory.
+     * The files get one record per log call, stamped when it was queued, and
+     * are written by the log sink's thread, never the caller's.
+     * 
+     * @return True if the log files could be opened.
+     */
+    public static synchronized boolean enableLogFile() {
+        if (logFile != null)
+            return true;
+        
+        if (getProvider() == null || getProvider().getLogDirectory() == null)
+            return false;
+        
+        try {
+            logFile = new LogFileAppender(new File(getProvider().getLogDirectory()), LOG_SEGMENT_SIZE, LOG_SEGMENT_COUNT);
+            return true;
+        } catch (IOException ex) {
+            Log.e(ex);
+            return false;
+        }
+    }
+    
+    /**
+     * 
+     * enableLogFile on a platform thread, so opening the segment files stays
+     * off the FX Application Thread.
+     * 
+     * @return Future completed with true if the log files could be opened.
+     */
+    public static CompletableFuture<Boolean> enableLogFileAsync() {
+        return PlatformExecutor.submit("enableLogFile", PlatformService::enableLogFile, asyncTimeoutMs);
+    }
+    
+    /**
+     * 
+     * @return  Directory for log and diagnostic files on this platform, or null.
+     */
+    public static String getLogDirectory() {
+        return getProvider() == null ? null : getProvider().getLogDirectory();
+    }
+    
+    private static void writeLog(String text) {
+        if (getProvider() != null)
+            getProvider().log(text);
         else System.err.println(text);
     }
+    
+    // One file record per log call, stamped when it was queued.
+    private static void writeLogRecord(String text, long time) {
+        LogFileAppender file = logFile;
+        if (file != null) {
+            try {
+                file.append(time, text);
+            } catch (IOException ex) {
+                logFile = null;
+                System.err.println("Log file disabled, " + ex.getMessage());
+            }
+        }
+    }
   
     public static boolean isIOS() {
-        if (provider != null)
-            return provider.isIOS();
+        if (getProvider() != null)
+            return getProvider().isIOS();
         return false;
     }
     
     public static boolean isAndroid() {
-        if (provider != null)
-            return provider.isAndroid();
+        if (getProvider() != null)
+            return getProvider().isAndroid();
         return false;
     }
     
     public static boolean isDesktop() {
-        if (provider != null)
-            return provider.isDesktop();
+        if (getProvider() != null)
+            return getProvider().isDesktop();
         return false;
     }
     
     public static void hideOnScreenKeyboard() {
-        if (provider != null)
-            provider.hideOnScreenKeyboard();
+        if (getProvider() != null)
+            getProvider().hideOnScreenKeyboard();
+    }
+    
+    public static CompletableFuture<Void> hideOnScreenKeyboardAsync() {
+        return callAsync("hideOnScreenKeyboard", p -> {
+            p.hideOnScreenKeyboard();
+            return null;
+        }, asyncTimeoutMs, keyboardCalls);
     }
     
     public static void showOnScreenKeyboard() {
-        if (provider != null)
-            provider.showOnScreenKeyboard();
+        if (getProvider() != null)
+            getProvider().showOnScreenKeyboard();
+    }
+    
+    public static CompletableFuture<Void> showOnScreenKeyboardAsync() {
+        return callAsync("showOnScreenKeyboard", p -> {
+            p.showOnScreenKeyboard();
+            return null;
+        }, asyncTimeoutMs, keyboardCalls);
     }
     
     public static void platformRun(String exec) {
-        if (provider != null)
-            provider.platformRun(exec);
+        if (getProvider() != null)
+            getProvider().platformRun(exec);
     }
     
+    public static CompletableFuture<Void> platformRunAsync(String exec) {
+        return runAsync("platformRun", p -> p.platformRun(exec));
+    }
+    
+    /**
+     * 
+     * Providers cache the answer, so repeated checks such as refreshing
+     * launch buttons are memory lookups. Use existsForRunAsync for a first
+     * check on the FX Application Thread.
+     * 
+     * @param exec  Program or package to look for.
+     * @return      True if it can be run.
+     */
     public static boolean existsForRun(String exec) {
-        if (provider != null)
-            return provider.existsForRun(exec);
-        else {
+        PlatformProvider p = getProvider();
+        if (p == null) {
             log("providor == null in existsForRun");
             return false;
         }
+        return p.existsForRun(exec);
+    }
+    
+    public static CompletableFuture<Boolean> existsForRunAsync(String exec) {
+        return PlatformExecutor.submit("existsForRun", () -> existsForRun(exec), asyncTimeoutMs);
+    }
+    
+    /**
+     * 
+     * Check several programs or packages in one call.
+     * 
+     * @param execs Programs or packages to look for.
+     * @return      Whether each can be run, in the order given.
+     */
+    public static Map<String, Boolean> existsForRun(Collection<String> execs) {
+        PlatformProvider p = getProvider();
+        if (p == null) {
+            Map<String, Boolean> result = new LinkedHashMap<>();
+            for (String exec : execs)
+                result.put(exec, false);
+            return result;
+        }
+        return p.existsForRun(execs);
+    }
+    
+    public static CompletableFuture<Map<String, Boolean>> existsForRunAsync(Collection<String> execs) {
+        return PlatformExecutor.submit("existsForRun", () -> existsForRun(execs), asyncTimeoutMs);
     }
     
     public static Object test() {
-        return provider.test();
+        return getProvider().test();
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ *
+ * Coalesces resize notifications so the work they trigger runs at most once
+ * per pulse, right before the frame is rendered. With a debounce window the
+ * work waits until no notification has arrived for that long.
+ * 
+ * The timer only runs while a request is pending. Must be used from the
+ * JavaFX Application Thread.
+ * 
+ * @author Heath Leach
+ */
+public class ResizeScheduler {
+    
+    private final Runnable action;
+    private long debounceNanos = 0;
+    private long lastRequest = 0;
+    private boolean pending = false;
+    private boolean running = false;
+    
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (!pending) {
+                stopTimer();
+                return;
+            }
+            if (debounceNanos > 0 && System.nanoTime() - lastRequest < debounceNanos)
+                return;
+            
+            pending = false;
+            stopTimer();
+            action.run();
+        }
+    };
+    
+    /**
+     * 
+     * @param action    Work to run once per pulse in which a request was made.
+     */
+    public ResizeScheduler(Runnable action) {
+        this.action = action;
+    }
+    
+    /**
+     * 
+     * Sets how long requests must stop arriving before the action runs.
+     * Zero runs it on the next pulse.
+     * 
+     * @param millis    Debounce window in milliseconds.
+     */
+    public void setDebounce(double millis) {
+        debounceNanos = (long) (Math.max(0, millis) * 1000000);
+    }
+    
+    public double getDebounce() {
+        return debounceNanos / 1000000.0;
+    }
+    
+    /**
+     * Schedules the action for the next pulse. Further requests before then are merged.
+     */
+    public void request() {
+        lastRequest = System.nanoTime();
+        pending = true;
+        if (!running) {
+            running = true;
+            timer.start();
+        }
+    }
+    
+    /**
+     * Drops a pending request.
+     */
+    public void cancel() {
+        pending = false;
+        stopTimer();
+    }
+    
+    /**
+     * Runs a pending request now rather than waiting for the pulse.
+     */
+    public void flush() {
+        if (pending) {
+            pending = false;
+            stopTimer();
+            action.run();
+        }
+    }
+    
+    public boolean isPending() {
+        return pending;
+    }
+    
+    private void stopTimer() {
+        if (running) {
+            running = false;
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 
+ * Remembers existsForRun answers so repeated checks, such as refreshing
+ * launch buttons, are memory lookups.
+ * 
+ * Answers are kept until they are invalidated, or until the time to live
+ * passes when the provider has no way to hear about changes. A lookup that
+ * overlaps an invalidation is returned but not kept, so a stale answer can
+ * never outlive the change that made it stale.
+ *
+ * @author Heath Leach
+ */
+public class RunLookupCache {
+    
+    public static final long DEFAULT_TTL_MS = 5000;
+    
+    private final Predicate<String> lookup;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long ttlMs;
+    
+    private static class Entry {
+        final boolean exists;
+        final boolean expiring;
+        final long expires;
+        
+        Entry(boolean exists, boolean expiring, long expires) {
+            this.exists = exists;
+            this.expiring = expiring;
+            this.expires = expires;
+        }
+    }
+    
+    /**
+     * 
+     * @param lookup    Answers existsForRun for a target.
+     * @param ttlMs     How long answers are kept in milliseconds, or 0 until invalidated.
+     */
+    public RunLookupCache(Predicate<String> lookup, long ttlMs) {
+        this.lookup = lookup;
+        this.ttlMs = ttlMs;
+    }
+    
+    /**
+     * 
+     * @param target    Program path or package name.
+     * @return          True if the target can be run.
+     */
+    public boolean exists(String target) {
+        Entry entry = entries.get(target);
+        long now = System.nanoTime();
+        
+        if (entry != null && (!entry.expiring || entry.expires - now > 0))
+            return entry.exists;
+        
+        long seen = generation.get();
+        boolean exists = lookup.test(target);
+        long ttl = ttlMs;
+        
+        if (generation.get() == seen) {
+            Entry fresh = new Entry(exists, ttl > 0, now + ttl * 1000000L);
+            entries.put(target, fresh);
+            // Invalidations count first and remove second, so one that began after 
+            // the check above is either seen here or removes the entry itself.
+            if (generation.get() != seen)
+                entries.remove(target, fresh);
+        }
+        return exists;
+    }
+    
+    /**
+     * 
+     * @param targets   Program paths or package names.
+     * @return          Answers in the order of targets.
+     */
+    public Map<String, Boolean> existsAll(Collection<String> targets) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (String target : targets)
+            result.put(target, exists(target));
+        return result;
+    }
+    
+    public void invalidate(String target) {
+        generation.incrementAndGet();
+        entries.remove(target);
+    }
+    
+    /**
+     * 
+     * @param stale Chooses the targets whose answers should be looked up again.
+     */
+    public void invalidateIf(Predicate<String> stale) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(stale);
+    }
+    
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+    
+    /**
+     * 
+     * @param ttlMs How long new answers are kept in milliseconds, or 0 until invalidated.
+     */
+    public void setTtl(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+    
+    public long getTtl() {
+        return ttlMs;
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+}
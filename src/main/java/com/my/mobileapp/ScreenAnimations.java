@@ -0,0 +1,146 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.animation.Animation;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ *
+ * Keeps track of the animations belonging to the nodes of a screen, so they
+ * can be paused while the screen is hidden. Animations are recorded in the
+ * properties of the node they belong to, and found by walking the screen.
+ * 
+ * Must be used from the JavaFX Application Thread.
+ * 
+ * @author Heath Leach
+ */
+public class ScreenAnimations {
+    
+    private static final String ANIMATIONS_KEY = "com.my.mobileapp.animations";
+    private static final String PAUSED_KEY = "com.my.mobileapp.pausedAnimations";
+    
+    /**
+     * 
+     * Register an animation to be paused while the screen containing a node is hidden.
+     * 
+     * @param node      Node the animation belongs to.
+     * @param animation Animation to track.
+     */
+    public static void track(Node node, Animation animation) {
+        List<Animation> list = getList(node, ANIMATIONS_KEY, true);
+        if (!list.contains(animation))
+            list.add(animation);
+    }
+    
+    /**
+     * 
+     * Stop tracking an animation.
+     * 
+     * @param node      Node the animation was registered on.
+     * @param animation Animation to forget.
+     */
+    public static void untrack(Node node, Animation animation) {
+        List<Animation> list = getList(node, ANIMATIONS_KEY, false);
+        if (list != null)
+            list.remove(animation);
+    }
+    
+    /**
+     * 
+     * Pause the running animations of a screen.
+     * 
+     * @param screen    Root of the screen.
+     */
+    public static void pause(Node screen) {
+        ArrayList<Animation> paused = new ArrayList<>();
+        collect(screen, paused);
+        paused.removeIf(a -> a.getStatus() != Animation.Status.RUNNING);
+        for (Animation a : paused)
+            a.pause();
+        
+        List<Animation> previous = getList(screen, PAUSED_KEY, false);
+        if (previous != null)
+            paused.addAll(previous);
+        if (paused.isEmpty())
+            screen.getProperties().remove(PAUSED_KEY);
+        else
+            screen.getProperties().put(PAUSED_KEY, paused);
+    }
+    
+    /**
+     * 
+     * Resume the animations pause() paused, if nothing else has changed them since.
+     * 
+     * @param screen    Root of the screen.
+     */
+    public static void resume(Node screen) {
+        List<Animation> paused = getList(screen, PAUSED_KEY, false);
+        if (paused == null)
+            return;
+        
+        screen.getProperties().remove(PAUSED_KEY);
+        for (Animation a : paused) {
+            if (a.getStatus() == Animation.Status.PAUSED)
+                a.play();
+        }
+    }
+    
+    /**
+     * 
+     * Stop every animation of a screen which is being discarded.
+     * 
+     * @param screen    Root of the screen.
+     */
+    public static void stop(Node screen) {
+        ArrayList<Animation> all = new ArrayList<>();
+        collect(screen, all);
+        for (Animation a : all)
+            a.stop();
+        screen.getProperties().remove(PAUSED_KEY);
+    }
+    
+    private static void collect(Node node, List<Animation> out) {
+        List<Animation> list = getList(node, ANIMATIONS_KEY, false);
+        if (list != null)
+            out.addAll(list);
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable())
+                collect(child, out);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Animation> getList(Node node, String key, boolean create) {
+        List<Animation> list = (List<Animation>) node.getProperties().get(key);
+        if (list == null && create) {
+            list = new ArrayList<>();
+            node.getProperties().put(key, list);
+        }
+        return list;
+    }
+}
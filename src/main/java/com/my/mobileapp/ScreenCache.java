@@ -0,0 +1,231 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ * Bookkeeping and eviction policy for the screens held by a ScreenMapPane.
+ * 
+ * Limits of 0 mean unlimited, which is the default, so nothing is evicted
+ * until a limit is set. Safe to use from any thread.
+ *
+ * @author Heath Leach
+ */
+public class ScreenCache {
+    
+    public enum Policy { LRU, LFU }
+    
+    private class Entry {
+        public long lastUsed;
+        public long uses;
+        public int nodeCount;
+        public Entry(int nodeCount) {
+            this.nodeCount = nodeCount;
+            this.lastUsed = ++tick;
+            this.uses = 1;
+        }
+    }
+    
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private final HashSet<String> pinned = new HashSet<>();
+    private Policy policy = Policy.LRU;
+    private int maxScreens = 0;
+    private int maxNodes = 0;
+    private long tick = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    /**
+     * 
+     * @param p     Which screen to evict first, least recently or least frequently used.
+     */
+    public synchronized void setPolicy(Policy p) {
+        policy = p;
+    }
+    
+    public synchronized Policy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * 
+     * @param max   Maximum number of screens to keep loaded, 0 for no limit.
+     */
+    public synchronized void setMaxScreens(int max) {
+        maxScreens = max;
+    }
+    
+    public synchronized int getMaxScreens() {
+        return maxScreens;
+    }
+    
+    /**
+     * 
+     * @param max   Maximum number of nodes, summed across loaded screens, 0 for no limit.
+     */
+    public synchronized void setMaxNodes(int max) {
+        maxNodes = max;
+    }
+    
+    public synchronized int getMaxNodes() {
+        return maxNodes;
+    }
+    
+    /**
+     * 
+     * Keep a screen loaded regardless of the limits.
+     * 
+     * @param key   Key of the screen to pin.
+     */
+    public synchronized void pin(String key) {
+        pinned.add(key);
+    }
+    
+    public synchronized void unpin(String key) {
+        pinned.remove(key);
+    }
+    
+    public synchronized boolean isPinned(String key) {
+        return pinned.contains(key);
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+     * 
+     * @return  Estimated number of nodes across all loaded screens.
+     */
+    public synchronized int getNodeCount() {
+        int count = 0;
+        for (Entry e : entries.values())
+            count += e.nodeCount;
+        return count;
+    }
+    
+    public synchronized int getScreenCount() {
+        return entries.size();
+    }
+    
+    void added(String key, Node screen) {
+        int nodeCount = countNodes(screen);
+        synchronized (this) {
+            entries.put(key, new Entry(nodeCount));
+        }
+    }
+    
+    synchronized void removed(String key) {
+        entries.remove(key);
+    }
+    
+    synchronized void hit(String key) {
+        Entry e = entries.get(key);
+        
+        hits++;
+        if (e != null) {
+            e.lastUsed = ++tick;
+            e.uses++;
+        }
+    }
+    
+    synchronized void miss(String key) {
+        misses++;
+    }
+    
+    /**
+     * 
+     * Choose screens to evict until the limits are met.
+     * 
+     * @param candidates    Keys of screens which can be evicted and rebuilt.
+     * @return              Keys to evict, in order.
+     */
+    synchronized List<String> selectVictims(Collection<String> candidates) {
+        ArrayList<String> victims = new ArrayList<>();
+        ArrayList<String> remaining = new ArrayList<>();
+        int screens = entries.size();
+        int nodes = getNodeCount();
+        
+        for (String key : candidates) {
+            if (!pinned.contains(key) && entries.containsKey(key))
+                remaining.add(key);
+        }
+        
+        while (!remaining.isEmpty() && 
+                ((maxScreens > 0 && screens > maxScreens) || (maxNodes > 0 && nodes > maxNodes))) {
+            String victim = remaining.get(0);
+            for (String key : remaining) {
+                if (isBetterVictim(entries.get(key), entries.get(victim)))
+                    victim = key;
+            }
+            remaining.remove(victim);
+            victims.add(victim);
+            screens--;
+            nodes -= entries.get(victim).nodeCount;
+        }
+        return victims;
+    }
+    
+    synchronized void evicted(String key) {
+        entries.remove(key);
+        evictions++;
+    }
+    
+    private boolean isBetterVictim(Entry a, Entry b) {
+        if (policy == Policy.LFU && a.uses != b.uses)
+            return a.uses < b.uses;
+        return a.lastUsed < b.lastUsed;
+    }
+    
+    /**
+     * 
+     * @param node  Root of the tree to count.
+     * @return      Number of nodes in the tree, including the root.
+     */
+    public static int countNodes(Node node) {
+        int count = 1;
+        
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable())
+                count += countNodes(child);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,66 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import javafx.scene.Node;
+
+/**
+ *
+ * Optional lifecycle callbacks for a screen. ScreenMapPane calls them on a
+ * screen node which implements this interface, or on the controller of a
+ * resource screen which does. A DynamicScreen forwards them to the controller
+ * of its displayed layout.
+ * 
+ * Animations registered with ScreenAnimations are paused and resumed along
+ * with the screen, so these are for other work, such as polling or timers.
+ * 
+ * @author Heath Leach
+ */
+public interface ScreenLifecycle {
+    
+    /**
+     * The screen is displayed, or displayed again after a pause.
+     */
+    public void onShow(Node screen);
+    
+    /**
+     * The screen is no longer displayed. It stays in memory.
+     */
+    public void onHide(Node screen);
+    
+    /**
+     * The screen is displayed but covered, such as by a pop out.
+     */
+    public void onPause(Node screen);
+    
+    /**
+     * The screen has been dropped from memory and will be rebuilt if it is needed again.
+     */
+    public void onEvict(Node screen);
+    
+    /**
+     * The screen has been removed for good.
+     */
+    public void onDispose(Node screen);
+}
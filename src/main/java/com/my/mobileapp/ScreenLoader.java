@@ -0,0 +1,146 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+/**
+ * Loads FXML resources into screens, either on the calling thread or on a
+ * small pool of background workers.
+ * 
+ * Building a scene graph off the FX Application Thread is fine as long as
+ * the result is not attached to a live scene until it is handed back.
+ * 
+ * Resources compiled to Java at build time (see buildSrc FxmlCompiler) are
+ * created by their generated class, anything else goes through FXMLLoader.
+ *
+ * @author Heath Leach
+ */
+public class ScreenLoader {
+
+    private static final int POOL_SIZE = 
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    
+    private static ExecutorService executor = null;
+    
+    private static final String COMPILED_INDEX = "com.my.mobileapp.CompiledScreenIndex";
+    private static final Function<String, CompiledScreen> compiledScreens = findCompiledScreens();
+    
+    // The index is generated by the build, so it is looked up once by name.
+    @SuppressWarnings("unchecked")
+    private static Function<String, CompiledScreen> findCompiledScreens() {
+        try {
+            return (Function<String, CompiledScreen>) 
+                    Class.forName(COMPILED_INDEX).newInstance();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+    
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(POOL_SIZE, r -> {
+                Thread t = new Thread(r, "screen-loader-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 
+     * Load an FXML resource on the calling thread.
+     * 
+     * @param resource      FXML resource to load.
+     * @param controller    Controller for the resource or null.
+     * @return              The loaded pane.
+     * @throws IOException  If the resource cannot be found or loaded.
+     */
+    public static Pane load(String resource, Object controller) throws IOException {
+        CompiledScreen compiled = compiledScreens == null ? null : compiledScreens.apply(resource);
+        
+        if (compiled != null) {
+            try (StartupTrace.Span span = StartupTrace.begin("Create compiled ", resource)) {
+                Node screen = compiled.create(controller);
+                // Null means the controller did not match and nothing was touched. Otherwise
+                // the controller is initialized by now, so FXMLLoader must not run again.
+                if (screen != null) {
+                    if (!(screen instanceof Pane))
+                        throw new IOException("Compiled root of " + resource + " is not a Pane");
+                    return (Pane) screen;
+                }
+            }
+        }
+        
+        try (StartupTrace.Span span = StartupTrace.begin("FXMLLoader ", resource)) {
+            return loadFxml(resource, controller);
+        }
+    }
+    
+    private static Pane loadFxml(String resource, Object controller) throws IOException {
+        URL url = AppTemplate.class.getResource(resource);
+        
+        if (url == null)
+            throw new IOException("Resource not found: " + resource);
+        
+        FXMLLoader loader = new FXMLLoader(url);
+        // Worker threads do not necessarily share the application's context class loader.
+        loader.setClassLoader(AppTemplate.class.getClassLoader());
+        if (controller != null)
+            loader.setController(controller);
+        return (Pane) loader.load();
+    }
+
+    /**
+     * 
+     * Load an FXML resource on a background worker. The future is completed
+     * on the worker thread, so callers must move back to the FX Application
+     * Thread before attaching the pane.
+     * 
+     * @param resource      FXML resource to load.
+     * @param controller    Controller for the resource or null.
+     * @return              Future completed with the loaded pane.
+     */
+    public static CompletableFuture<Pane> loadAsync(String resource, Object controller) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(resource, controller);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, getExecutor());
+    }
+}
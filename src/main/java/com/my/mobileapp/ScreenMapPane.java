@@ -23,23 +23,32 @@
 
 package com.my.mobileapp;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.ParallelTransition;
 import javafx.animation.SequentialTransition;
 import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
 import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
 import javafx.util.Duration;
 
 /**
@@ -48,14 +57,93 @@ import javafx.util.Duration;
  */
 public class ScreenMapPane extends StackPane {
     
-    private final HashMap<String, Node> screenMap = new HashMap<>();;
-    private String currentScreenKey = "";
-    private boolean lockPane = false;
+    // The registry may be used from any thread. Anything which touches the
+    // scene graph is run on the FX Application Thread.
+    private final ConcurrentHashMap<String, Node> screenMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Pane>> pendingScreens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ScreenSource> screenSources = new ConcurrentHashMap<>();
+    private final ScreenCache cache = new ScreenCache();
+    private volatile String currentScreenKey = "";
+    private final ArrayDeque<Navigation> navigationQueue = new ArrayDeque<>();
+    private Navigation inFlight = null;             // Request whose transition is running
+    private Animation inFlightAnimation = null;
+    private Runnable inFlightFinish = null;         // Ends the running transition
+    private boolean coalescing = true;
+    private boolean flipBack = false;
+    private InFlightPolicy inFlightPolicy = InFlightPolicy.FAST_FORWARD;
+    private TransitionMode transitionMode = TransitionMode.LIVE;
+    private final NavigationHistory history = new NavigationHistory();
+    private FrameMonitor frameMonitor = null;
+    private FxThreadChecker threadChecker = null;
     private Region popOutScreen = null;
     private long popOutMSecs = 0;
     private String popOutLockScreen = "";
+    private String popOutKey = "";
     private boolean popOutRetracted = true;
     
+    private static final double FAST_FORWARD_RATE = 4.0;
+    
+    /**
+     * What a new request does to a transition which is already running.
+     * WAIT lets it finish, FAST_FORWARD speeds it up, INTERRUPT ends it at once.
+     * A transition still waiting for its screen to load gets the same treatment
+     * when it starts, except that INTERRUPT with coalescing on drops it.
+     */
+    public enum InFlightPolicy {WAIT, FAST_FORWARD, INTERRUPT}
+    
+    private static final int LIFECYCLE_SHOW = 0;
+    private static final int LIFECYCLE_HIDE = 1;
+    private static final int LIFECYCLE_PAUSE = 2;
+    private static final int LIFECYCLE_EVICT = 3;
+    private static final int LIFECYCLE_DISPOSE = 4;
+    
+    private static final int HISTORY_NONE = 0;      // Navigation does not touch the history
+    private static final int HISTORY_PUSH = 1;      // Navigation records the screen it leaves
+    private static final int HISTORY_BACK = 2;      // Navigation returns to the top history entry
+    private static final int HISTORY_REPLACE = 3;   // Navigation removes the screen it leaves from the history
+    
+    // A queued change of screen. A back request gets its target when it starts.
+    private class Navigation {
+        public String key;
+        public ScreenTransition transition;
+        public long msecs;
+        public int history;
+        public String fromKey = null;           // Screen being left, set when started
+        public Node fromScreen = null;
+        public NavigationHistory.Entry backEntry = null;    // Entry popped by a back navigation
+        public final TransitionMode mode;
+        public final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        public Navigation(String key, ScreenTransition transition, long msecs, TransitionMode mode, int history) {
+            this.key = key;
+            this.transition = transition;
+            this.msecs = msecs;
+            this.mode = mode;
+            this.history = history;
+        }
+    }
+    
+    // How to rebuild a screen after it has been evicted from the map.
+    private class ScreenSource {
+        public final String resource;
+        public final Initializable controller;
+        public final Supplier<? extends Pane> factory;
+        public ScreenSource(String resource, Initializable controller) {
+            this.resource = resource;
+            this.controller = controller;
+            this.factory = null;
+        }
+        public ScreenSource(Supplier<? extends Pane> factory) {
+            this.resource = null;
+            this.controller = null;
+            this.factory = factory;
+        }
+        public Pane build() throws Exception {
+            if (factory != null)
+                return factory.get();
+            return ScreenLoader.load(resource, controller);
+        }
+    }
+    
     /**
      * @param key       Map key for the screen to be loaded.
      * @param resource  FXML resource to be inserted into the screen map and loaded.
@@ -72,54 +160,220 @@ public class ScreenMapPane extends StackPane {
      */
     public ScreenMapPane(String key, Pane screen){
         super();
-        lockPane = false;
         addScreen(key, screen);
         flipScreen(key);
     }
     
 
-    private void setLock(){
-        lockPane = true;
-    }
-    
-    private void clearLock(){
-        lockPane = false;
-    }
-    
     private boolean isLocked(){
-        return lockPane;
+        return inFlight != null;
     }
     
     /**
-     * Adds a screen to the screen map.
+     * Adds a screen to the screen map. Screens added this way cannot be 
+     * rebuilt, so they are never evicted by the cache. May be called from 
+     * any thread, so screens can be built off the FX Application Thread.
      * 
      * @param key       Key name for screen.
      * @param screen    Node representing the screen.
      */
     public void addScreen(String key, Pane screen) {
+        if (screen == null) {
+            Log.e("Screen == null, key = "+key);
+            return;
+        }
+        screenSources.remove(key);
+        putScreen(key, screen);
+    }
+    
+    /**
+     * Adds a screen to the screen map which is built by a factory the first
+     * time it is needed, and rebuilt by it if the cache evicts the screen.
+     * 
+     * @param key       Key name for screen.
+     * @param factory   Builds the node representing the screen.
+     */
+    public void addScreenFactory(String key, Supplier<? extends Pane> factory) {
+        screenMap.remove(key);
+        cache.removed(key);
+        screenSources.put(key, new ScreenSource(factory));
+    }
+    
+    private void putScreen(String key, Pane screen) {
         screenMap.put(key, screen);
+        cache.added(key, screen);
+        runOnFx(() -> trimCache(key));
+    }
+    
+    // Run now on the FX Application Thread, otherwise post it there.
+    private static void runOnFx(Runnable r) {
+        if (Platform.isFxApplicationThread())
+            r.run();
+        else
+            Platform.runLater(r);
     }
     
     /**
      *
-     * Remove a screen from the screen map.
+     * Remove a screen from the screen map. May be called from any thread.
      * 
      * @param key       Key of the screen to remove.
      * @return          The node representing the screen removed or null.
      */
     public Node dropScreen(String key) {
-        return screenMap.remove(key);
+        ScreenSource source = screenSources.remove(key);
+        Node screen = screenMap.remove(key);
+        cache.removed(key);
+        runOnFx(() -> fireLifecycle(key, screen, source, LIFECYCLE_DISPOSE));
+        return screen;
     }
     
     /**
      *
-     * Return the screen node represented by the passed key.
+     * Return the screen node represented by the passed key. A screen which 
+     * has been evicted is rebuilt from its resource or factory. May be called
+     * from any thread.
      * 
      * @param key       Key of the screen to return.
      * @return          Node representing the screen referenced by name or null.
      */
     public Node getScreen(String key) {
-        return screenMap.get(key);
+        return lookupScreen(key, true);
+    }
+    
+    // Checks made for the pane's own bookkeeping pass false, so only real 
+    // uses of a screen reach the cache counters.
+    private Node lookupScreen(String key, boolean count) {
+        if (key == null)
+            return null;
+        
+        Node screen = screenMap.get(key);
+        
+        if (screen != null) {
+            if (count)
+                cache.hit(key);
+        } else if (screenSources.containsKey(key) && !isLoading(key)) {
+            if (count)
+                cache.miss(key);
+            screen = rebuildScreen(key);
+        }
+        return screen;
+    }
+    
+    private Node rebuildScreen(String key) {
+        try {
+            ScreenSource source = screenSources.get(key);
+            Pane screen = source == null ? null : source.build();
+            if (screen == null)
+                return null;
+            // Another thread may have rebuilt it first.
+            Node existing = screenMap.putIfAbsent(key, screen);
+            if (existing != null)
+                return existing;
+            cache.added(key, screen);
+            runOnFx(() -> trimCache(key));
+            return screen;
+        } catch (Exception ex) {
+            Log.e("Unable to build screen, key = " + key + ", " + ex.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 
+     * The cache decides which screens to evict. Set its limits to bound how 
+     * many screens are kept in memory, and read its counters to size it.
+     * 
+     * @return  The screen cache for this pane.
+     */
+    public ScreenCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Evict screens which can be rebuilt until the cache limits are met. Screens
+     * which are showing, or under a pop out, are never evicted.
+     * 
+     * @param keep  Key of a screen which is about to be shown.
+     */
+    private void trimCache(String keep) {
+        ArrayList<String> candidates = new ArrayList<>();
+        
+        for (String key : screenSources.keySet()) {
+            Node screen = screenMap.get(key);
+            if (screen != null && !key.equals(keep) && !key.equals(currentScreenKey)
+                    && !key.equals(popOutLockScreen) && screen != popOutScreen 
+                    && !getChildren().contains(screen) && !history.isLive(key))
+                candidates.add(key);
+        }
+        
+        for (String key : cache.selectVictims(candidates))
+            evict(key);
+    }
+    
+    /**
+     * Drop screens of history entries below the live ones, if they can be rebuilt.
+     * 
+     * @param keep  Key of a screen which is about to be shown.
+     */
+    private void releaseHistory(String keep) {
+        for (String key : history.getRestorableKeys()) {
+            Node screen = screenMap.get(key);
+            if (screen != null && screenSources.containsKey(key) && !cache.isPinned(key)
+                    && !key.equals(keep) && !key.equals(currentScreenKey)
+                    && !key.equals(popOutLockScreen) && screen != popOutScreen
+                    && !getChildren().contains(screen))
+                evict(key);
+        }
+    }
+    
+    private void evict(String key) {
+        fireLifecycle(key, screenMap.remove(key), LIFECYCLE_EVICT);
+        cache.evicted(key);
+    }
+    
+    private void fireLifecycle(String key, Node screen, int event) {
+        fireLifecycle(key, screen, screenSources.get(key), event);
+    }
+    
+    /**
+     * Pause or resume the tracked animations of a screen and call its lifecycle callbacks.
+     */
+    private void fireLifecycle(String key, Node screen, ScreenSource source, int event) {
+        if (screen == null)
+            return;
+        
+        if (event == LIFECYCLE_SHOW)
+            ScreenAnimations.resume(screen);
+        else if (event == LIFECYCLE_HIDE || event == LIFECYCLE_PAUSE)
+            ScreenAnimations.pause(screen);
+        else
+            ScreenAnimations.stop(screen);
+        
+        ScreenLifecycle lifecycle = null;
+        if (screen instanceof ScreenLifecycle)
+            lifecycle = (ScreenLifecycle) screen;
+        else if (source != null && source.controller instanceof ScreenLifecycle)
+            lifecycle = (ScreenLifecycle) source.controller;
+        if (lifecycle == null)
+            return;
+        
+        switch (event) {
+            case LIFECYCLE_SHOW:
+                lifecycle.onShow(screen);
+                break;
+            case LIFECYCLE_HIDE:
+                lifecycle.onHide(screen);
+                break;
+            case LIFECYCLE_PAUSE:
+                lifecycle.onPause(screen);
+                break;
+            case LIFECYCLE_EVICT:
+                lifecycle.onEvict(screen);
+                break;
+            default:
+                lifecycle.onDispose(screen);
+        }
     }
     
     /**
@@ -164,12 +418,10 @@ public class ScreenMapPane extends StackPane {
      * @return              True if screen is added successfully
      */
     public boolean addResource(String key, String resource, Initializable controller) {
-        try {
-            FXMLLoader loader = new FXMLLoader(AppTemplate.class.getResource(resource));
-            if (controller != null)
-                loader.setController(controller);
-            Pane screenParent = (Pane) loader.load();
-            addScreen(key, screenParent);
+        try (StartupTrace.Span span = StartupTrace.begin("addResource ", key)) {
+            Pane screenParent = ScreenLoader.load(resource, controller);
+            screenSources.put(key, new ScreenSource(resource, controller));
+            putScreen(key, screenParent);
             return true;
         } catch (Exception ex) {
             Log.e(ex.getMessage());
@@ -177,187 +429,749 @@ public class ScreenMapPane extends StackPane {
         }
     }
     
+    /**
+     *
+     * Add an FXML resource as a screen, loading it on a background worker.
+     * 
+     * @param key       Key name for screen.
+     * @param resource  FXML resource to load for screen.
+     * @return          Future completed on the FX Application Thread once the screen is in the map.
+     */
+    public CompletableFuture<Pane> addResourceAsync(String key, String resource) {
+        return addResourceAsync(key, resource, null);
+    }
+
+    /**
+     *
+     * Add an FXML resource as a screen and set controller, loading it on a 
+     * background worker. Only the insertion into the screen map happens on
+     * the FX Application Thread.
+     * 
+     * @param key           Key name for screen.
+     * @param resource      FXML resource to load for screen.
+     * @param controller    Set controller of resource.
+     * @return              Future completed on the FX Application Thread once the screen is in the map.
+     */
+    public CompletableFuture<Pane> addResourceAsync(String key, String resource, Initializable controller) {
+        CompletableFuture<Pane> ready = new CompletableFuture<>();
+        
+        pendingScreens.put(key, ready);
+        screenSources.put(key, new ScreenSource(resource, controller));
+        ScreenLoader.loadAsync(resource, controller).whenComplete((pane, ex) -> 
+            Platform.runLater(() -> {
+                if (pendingScreens.get(key) == ready)
+                    pendingScreens.remove(key);
+                if (ex != null) {
+                    Log.e("Unable to load resource " + resource + ", key = " + key + ", " + ex.getMessage());
+                    screenSources.remove(key);
+                    ready.completeExceptionally(ex);
+                } else {
+                    putScreen(key, pane);
+                    ready.complete(pane);
+                }
+            }));
+        return ready;
+    }
+    
+    /**
+     * 
+     * @param key   Key of the screen to check.
+     * @return      True if the screen is still being loaded in the background.
+     */
+    public boolean isLoading(String key) {
+        return pendingScreens.containsKey(key);
+    }
+    
+    /**
+     * 
+     * Return a future for a screen which may still be loading.
+     * 
+     * @param key   Key of the screen to wait on.
+     * @return      Future completed with the screen, or with null if there is no such screen.
+     */
+    public CompletableFuture<Node> whenScreenReady(String key) {
+        CompletableFuture<Pane> pending = pendingScreens.get(key);
+        
+        if (pending == null)
+            return CompletableFuture.completedFuture(getScreen(key));
+        return pending.thenApply(pane -> (Node) pane);
+    }
+    
     /**
      *
      * Change the current screen to the screen map entry represented by key, unloading
-     * the exiting screen if there is one.
+     * the exiting screen if there is one. If a transition is running the change
+     * is queued.
      * 
      * @param key       Key of the screen to switch to.
-     * @return          True if the screen is loaded in the map, false if not.
+     * @return          True if the screen is shown or queued, false if it cannot be shown.
      */
     public boolean flipScreen(String key) {
-        Node screen = getScreen(key);
-        
-        if (isLocked()) {
-            return false;
-        }
-         
-        if (screen == null) {
-            Log.e("Screen == null, key = "+key);
-            return false;
-        } else {
-            if (getChildren().isEmpty()) {
-                getChildren().add(screen);
-            } else {
-                getChildren().remove(0);
-                getChildren().add(0, screen);
-            }
-            currentScreenKey = key;
-            requestFocus();
-            return true;
+        return accepted(navigate(key, ScreenTransition.FLIP));
+    }
+    
+    /**
+     *
+     * Change the current screen to the screen map entry represented by key. If
+     * that screen is still loading, show the fallback screen until it is ready.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param fallbackKey   Key of the screen to show while key is loading.
+     * @return              True if either screen could be shown.
+     */
+    public boolean flipScreen(String key, String fallbackKey) {
+        if (isLoading(key) && lookupScreen(fallbackKey, false) != null) {
+            boolean shown = flipScreen(fallbackKey);
+            return flipScreen(key) || shown;
         }
+        return flipScreen(key);
     }
     
     /**
      *
      * @param key       Map key of the screen to fade to.
      * @param msecs     Milliseconds it will take for fade to complete.
-     * @return          True if the screen is loaded, false otherwise.
+     * @return          True if the screen is shown or queued, false if it cannot be shown.
      */
     public boolean fadeScreen(String key, long msecs) {
-        final Node screen = getScreen(key);
-        final DoubleProperty opacity = opacityProperty();
+        return accepted(navigate(key, ScreenTransition.FADE, msecs));
+    }
+
+    public boolean fadeScreen(String key) {
+        return accepted(navigate(key, ScreenTransition.FADE));
+    }
+
+    public boolean slideScreenRight(String key) {
+        return accepted(navigate(key, ScreenTransition.SLIDE_RIGHT));
+    }
+
+    public boolean slideScreenLeft(String key) {
+        return accepted(navigate(key, ScreenTransition.SLIDE_LEFT));
+    }
+    
+    public boolean slideScreenDown(String key) {
+        return accepted(navigate(key, ScreenTransition.SLIDE_DOWN));
+    }
+
+    public boolean slideScreenUp(String key) {
+        return accepted(navigate(key, ScreenTransition.SLIDE_UP));
+    }
+    
+    public boolean slideScreenDownRight(String key) {
+        return accepted(navigate(key, ScreenTransition.SLIDE_DOWN_RIGHT));
+    }
+    
+    public boolean defaultTransition(String key) {
+        return flipScreen(key);
+    }
+    
+    // A request that has not failed yet.
+    private static boolean accepted(CompletableFuture<Boolean> request) {
+        return !request.isDone() || request.getNow(false);
+    }
+    
+    /**
+     * 
+     * Request a change of screen. Requests made while a transition is running
+     * are queued, and handled according to the coalescing and in flight policies.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param transition    Transition to use.
+     * @return              Future completed with true once the transition has
+     *                      finished, or false if the screen could not be shown or
+     *                      the request was superseded by a later one.
+     */
+    public CompletableFuture<Boolean> navigate(String key, ScreenTransition transition) {
+        return navigate(key, transition, transition.getDefaultMSecs());
+    }
+    
+    /**
+     * 
+     * Request a change of screen. See above.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param transition    Transition to use.
+     * @param msecs         Milliseconds the transition takes.
+     * @return              Future completed with true once the transition has
+     *                      finished, or false if it was not shown.
+     */
+    public CompletableFuture<Boolean> navigate(String key, ScreenTransition transition, long msecs) {
+        return navigate(key, transition, msecs, transitionMode);
+    }
+    
+    /**
+     * 
+     * Request a change of screen. See above.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param transition    Transition to use.
+     * @param msecs         Milliseconds the transition takes.
+     * @param mode          How the screens are rendered during the transition.
+     * @return              Future completed with true once the transition has
+     *                      finished, or false if it was not shown.
+     */
+    public CompletableFuture<Boolean> navigate(String key, ScreenTransition transition, long msecs, TransitionMode mode) {
+        return request(new Navigation(key, transition, msecs, mode, HISTORY_NONE));
+    }
+    
+    /**
+     * 
+     * Change screen, recording the current screen in the history so goBack 
+     * returns to it with the reverse transition.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param transition    Transition to use.
+     * @return              Future completed with true once the transition has finished.
+     */
+    public CompletableFuture<Boolean> pushScreen(String key, ScreenTransition transition) {
+        return request(new Navigation(key, transition, transition.getDefaultMSecs(), transitionMode, HISTORY_PUSH));
+    }
+    
+    /**
+     * 
+     * Change screen without recording the current screen in the history, so
+     * the new screen takes its place. Any history entries for the current
+     * screen are removed, so Back never returns to a replaced screen, and an
+     * entry for the new screen on top of the history is dropped.
+     * 
+     * @param key           Key of the screen to switch to.
+     * @param transition    Transition to use.
+     * @return              Future completed with true once the transition has finished.
+     */
+    public CompletableFuture<Boolean> replaceScreen(String key, ScreenTransition transition) {
+        return request(new Navigation(key, transition, transition.getDefaultMSecs(), transitionMode, HISTORY_REPLACE));
+    }
+    
+    /**
+     * 
+     * Return to the screen on top of the history, playing the transition used
+     * to leave it in reverse. With setFlipBack on the screen is flipped to
+     * instead, so it shows in the next frame.
+     * 
+     * @return  Future completed with true once the transition has finished, or
+     *          false if the history is empty.
+     */
+    public CompletableFuture<Boolean> goBack() {
+        return request(new Navigation(null, ScreenTransition.FLIP, 0, transitionMode, HISTORY_BACK));
+    }
+    
+    /**
+     * 
+     * @param flip  True to flip on goBack rather than play the reverse of the
+     *              leaving transition. Off by default.
+     */
+    public void setFlipBack(boolean flip) {
+        flipBack = flip;
+    }
+    
+    public boolean isFlipBack() {
+        return flipBack;
+    }
+    
+    /**
+     * 
+     * @return  True if the history has a screen to return to.
+     */
+    public boolean canGoBack() {
+        return !history.isEmpty();
+    }
+    
+    /**
+     * 
+     * The history keeps the screens of its top entries in memory, so going
+     * back to them is immediate. Screens of lower entries which can be rebuilt
+     * are dropped from the map.
+     * 
+     * @return  The back stack of this pane.
+     */
+    public NavigationHistory getHistory() {
+        return history;
+    }
+    
+    private CompletableFuture<Boolean> request(Navigation nav) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> request(nav));
+            return nav.done;
+        }
         
-        if (isLocked()) {
-            return false;
+        if (inFlight == null) {
+            start(nav);
+            return nav.done;
+        }
+        
+        if (coalescing) {
+            for (Navigation queued : navigationQueue)
+                queued.done.complete(false);
+            navigationQueue.clear();
+        }
+        navigationQueue.add(nav);
+        
+        if (inFlightAnimation == null) {
+            // Still waiting for its screen to load. Only an interrupting, coalescing
+            // pane drops it for the newer request, putting back any history entry
+            // it took, otherwise the policy is applied once its animation starts.
+            if (coalescing && inFlightPolicy == InFlightPolicy.INTERRUPT) {
+                Navigation waiting = inFlight;
+                inFlight = null;
+                if (waiting.backEntry != null)
+                    history.push(waiting.backEntry);
+                waiting.done.complete(false);
+                startNext();
+            }
+        } else {
+            applyInFlightPolicy();
+        }
+        return nav.done;
+    }
+    
+    private void applyInFlightPolicy() {
+        if (inFlightPolicy == InFlightPolicy.FAST_FORWARD)
+            inFlightAnimation.setRate(FAST_FORWARD_RATE);
+        else if (inFlightPolicy == InFlightPolicy.INTERRUPT)
+            finishTransition();
+    }
+    
+    /**
+     * 
+     * Latest target wins: a new request drops requests which are queued and 
+     * have not started. On by default.
+     * 
+     * @param coalesce  True to keep only the latest queued request.
+     */
+    public void setCoalescing(boolean coalesce) {
+        coalescing = coalesce;
+    }
+    
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+    
+    /**
+     * 
+     * @param policy    What a new request does to a running transition.
+     */
+    public void setInFlightPolicy(InFlightPolicy policy) {
+        inFlightPolicy = policy;
+    }
+    
+    public InFlightPolicy getInFlightPolicy() {
+        return inFlightPolicy;
+    }
+    
+    /**
+     * 
+     * @param mode  How screens are rendered during transitions which do not
+     *              name a mode. LIVE by default.
+     */
+    public void setTransitionMode(TransitionMode mode) {
+        transitionMode = mode;
+    }
+    
+    public TransitionMode getTransitionMode() {
+        return transitionMode;
+    }
+    
+    /**
+     * 
+     * @return  True if a transition is running or waiting for its screen to load.
+     */
+    public boolean isTransitioning() {
+        return inFlight != null;
+    }
+    
+    /**
+     * 
+     * @return  Number of requests waiting for the running transition.
+     */
+    public int getQueuedCount() {
+        return navigationQueue.size();
+    }
+    
+    /**
+     * Ends the running transition now, leaving its screen in place, and
+     * starts the next queued request.
+     */
+    public void finishTransition() {
+        if (inFlightAnimation != null) {
+            inFlightAnimation.stop();
+            inFlightFinish.run();
+        }
+    }
+    
+    private void startNext() {
+        Navigation next = navigationQueue.poll();
+        if (next != null)
+            start(next);
+    }
+    
+    private void finish(Navigation nav, boolean shown) {
+        if (shown && nav.fromScreen != null && !nav.fromKey.equals(currentScreenKey)
+                && nav.fromScreen != screenMap.get(currentScreenKey))
+            fireLifecycle(nav.fromKey, nav.fromScreen, LIFECYCLE_HIDE);
+        if (inFlight == nav) {
+            inFlight = null;
+            inFlightAnimation = null;
+            inFlightFinish = null;
+        }
+        nav.done.complete(shown);
+        if (inFlight == null)
+            startNext();
+    }
+    
+    /**
+     * Runs an animated transition. The cleanup leaves the pane as it should be
+     * at the end of the transition, whether it finished or was interrupted.
+     */
+    private void animate(Navigation nav, Animation animation, Runnable cleanup) {
+        inFlightAnimation = animation;
+        inFlightFinish = () -> {
+            cleanup.run();
+            tagFrames(null);
+            finish(nav, true);
+        };
+        tagFrames(nav.transition + " " + nav.key);
+        animation.setOnFinished(event -> {
+            if (inFlight == nav)
+                inFlightFinish.run();
+        });
+        animation.play();
+        // Requests made while the screen was loading.
+        if (!navigationQueue.isEmpty())
+            applyInFlightPolicy();
+    }
+    
+    private void start(Navigation nav) {
+        inFlight = nav;
+        if (nav.history == HISTORY_BACK) {
+            NavigationHistory.Entry entry = history.pop();
+            if (entry == null) {
+                finish(nav, false);
+                return;
+            }
+            nav.backEntry = entry;
+            nav.key = entry.key;
+            nav.transition = flipBack ? ScreenTransition.FLIP : entry.transition.reverse();
+            nav.msecs = flipBack ? 0 : entry.msecs;
+            nav.history = HISTORY_NONE;
+        }
+        
+        final String key = nav.key;
+        Node screen = getScreen(key);
+        
+        if (screen == null && isLoading(key)) {
+            pendingScreens.get(key).whenComplete((pane, ex) -> {
+                if (inFlight == nav) {
+                    inFlight = null;
+                    start(nav);
+                }
+            });
+            return;
         }
         
         if (screen == null) {
             Log.e("Screen == null, key = "+key);
-            return false;
+            finish(nav, false);
+            return;
+        }
+        
+        if (nav.history == HISTORY_PUSH) {
+            nav.history = HISTORY_NONE;
+            if (!currentScreenKey.isEmpty() && !currentScreenKey.equals(key)) {
+                history.push(new NavigationHistory.Entry(currentScreenKey, nav.transition, nav.msecs));
+                releaseHistory(key);
+            }
+        } else if (nav.history == HISTORY_REPLACE) {
+            nav.history = HISTORY_NONE;
+            if (!currentScreenKey.equals(key))
+                history.remove(currentScreenKey);
+            NavigationHistory.Entry top = history.peek();
+            if (top != null && top.key.equals(key))
+                history.pop();
+        }
+        
+        if (!key.equals(currentScreenKey)) {
+            nav.fromKey = currentScreenKey;
+            nav.fromScreen = screenMap.get(currentScreenKey);
+        }
+        
+        double width = getWidth();
+        double height = getHeight();
+        switch (nav.transition) {
+            case FADE:
+                fade(nav, screen);
+                break;
+            case SLIDE_LEFT:
+                slide(nav, screen, width, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0-width, 0.0);
+                break;
+            case SLIDE_RIGHT:
+                slide(nav, screen, 0.0-width, 0.0, 0.0, 0.0, 0.0, 0.0, width, 0.0);
+                break;
+            case SLIDE_UP:
+                slide(nav, screen, 0.0, height, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0-height);
+                break;
+            case SLIDE_DOWN:
+                slide(nav, screen, 0.0, 0.0-height, 0.0, 0.0, 0.0, 0.0, 0.0, height);
+                break;
+            case SLIDE_DOWN_RIGHT:
+                slide(nav, screen, 0.0-width, 0.0-height, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+                break;
+            default:
+                flip(nav, screen);
+        }
+    }
+    
+    // Called by each transition once it will go ahead, before the screen changes.
+    private void show(Navigation nav, Node screen) {
+        if (!nav.key.equals(currentScreenKey))
+            fireLifecycle(nav.key, screen, LIFECYCLE_SHOW);
+    }
+    
+    private void flip(Navigation nav, Node screen) {
+        show(nav, screen);
+        if (getChildren().isEmpty()) {
+            getChildren().add(screen);
         } else {
-            if (getChildren().isEmpty()) {
-                setOpacity(0.0);
-                getChildren().add(screen);
-                Timeline fadeIn = new Timeline(
-                        new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
-                        new KeyFrame(new Duration(msecs), new KeyValue(opacity, 1.0)));
-                SequentialTransition fade = new SequentialTransition();
-                fade.getChildren().add(fadeIn);
-                fade.play();
-            } else {
-                setLock();
-                Timeline fadeOut = new Timeline(
-                        new KeyFrame(Duration.ZERO, new KeyValue(opacity, 1.0)),
-                        new KeyFrame(Duration.millis(msecs), new EventHandler<ActionEvent>() {
-                            @Override
-                            public void handle(ActionEvent t) {
-                                getChildren().remove(0);
-                                getChildren().add(0, screen);
-                                clearLock();
-                            }
-                        }, new KeyValue(opacity, 0.0)));
-                Timeline fadeIn = new Timeline(
-                        new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
-                        new KeyFrame(Duration.millis(msecs), new KeyValue(opacity, 1.0))
-                );
-                
-                SequentialTransition fade = new SequentialTransition();
-
-                fade.getChildren().addAll(fadeOut, fadeIn);
-                fade.play();
+            getChildren().remove(0);
+            getChildren().add(0, screen);
+        }
+        currentScreenKey = nav.key;
+        trimCache(nav.key);
+        requestFocus();
+        finish(nav, true);
+    }
+    
+    private void fade(Navigation nav, Node screen) {
+        final DoubleProperty opacity = opacityProperty();
+        final long msecs = nav.msecs;
+        
+        show(nav, screen);
+        if (getChildren().isEmpty()) {
+            setOpacity(0.0);
+            getChildren().add(screen);
+            Timeline fadeIn = new Timeline(
+                    new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
+                    new KeyFrame(new Duration(msecs), new KeyValue(opacity, 1.0)));
+            currentScreenKey = nav.key;
+            trimCache(nav.key);
+            animate(nav, fadeIn, () -> setOpacity(1.0));
+        } else {
+            Node oldScreen = getChildren().get(0);
+            Node incoming = screen;
+            Runnable restoreCache = () -> {};
+            if (nav.mode == TransitionMode.SNAPSHOT) {
+                getChildren().set(0, snapshot(oldScreen));
+                incoming = snapshotIncoming(screen);
+            } else if (nav.mode == TransitionMode.CACHE) {
+                restoreCache = cacheForTransition(oldScreen, screen);
             }
-            currentScreenKey = key;
-            return true;
+            final Node fadeInNode = incoming;
+            final Runnable restore = restoreCache;
+            Runnable swap = () -> {
+                if (getChildren().get(0) != fadeInNode && getChildren().get(0) != screen)
+                    getChildren().set(0, fadeInNode);
+            };
+            Timeline fadeOut = new Timeline(
+                    new KeyFrame(Duration.ZERO, new KeyValue(opacity, 1.0)),
+                    new KeyFrame(Duration.millis(msecs), new EventHandler<ActionEvent>() {
+                        @Override
+                        public void handle(ActionEvent t) {
+                            swap.run();
+                        }
+                    }, new KeyValue(opacity, 0.0)));
+            Timeline fadeIn = new Timeline(
+                    new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0.0)),
+                    new KeyFrame(Duration.millis(msecs), new KeyValue(opacity, 1.0))
+            );
+            
+            SequentialTransition fade = new SequentialTransition();
+
+            fade.getChildren().addAll(fadeOut, fadeIn);
+            currentScreenKey = nav.key;
+            trimCache(nav.key);
+            animate(nav, fade, () -> {
+                if (getChildren().get(0) != screen)
+                    getChildren().set(0, screen);
+                restore.run();
+                setOpacity(1.0);
+            });
         }
     }
     
-    private boolean slideScreen(String key, long msecs, 
+    private void slide(Navigation nav, Node screen, 
             double fromX1, double fromY1, double toX1, double toY1,
             double fromX2, double fromY2, double toX2, double toY2) {
-        Node screen = getScreen(key);
-
-        if (isLocked()) {
-            return false;
-        }
+        final long msecs = nav.msecs;
         
         if (getChildren().contains(screen)) {
-            return false;
+            finish(nav, false);
+            return;
         }
+        show(nav, screen);
         
-        if (screen == null) {
-            Log.e("Screen == null, key = "+key);
-            return false;
+        if (getChildren().isEmpty()) {
+            setOpacity(0.0);
+            getChildren().add(screen);
+            currentScreenKey = nav.key;
+            trimCache(nav.key);
+            finish(nav, true);
         } else {
-            if (getChildren().isEmpty()) {
-                setOpacity(0.0);
-                getChildren().add(screen);
-            } else {
-                setLock();
-                getChildren().add(screen);
-                
-                TranslateTransition slideNew = new TranslateTransition(Duration.millis(msecs), screen);
-                slideNew.setFromX(fromX1);
-                slideNew.setToX(toX1);
-                slideNew.setFromY(fromY1);
-                slideNew.setToY(toY1);
- 
-                Node oldScreen = getChildren().get(0);
-                TranslateTransition slideOld = new TranslateTransition(Duration.millis(msecs), oldScreen);
-                slideOld.setFromX(fromX2);
-                slideOld.setToX(toX2);
-                slideOld.setFromY(fromY2);
-                slideOld.setToY(toY2);
-                
-                Timeline cleanup = new Timeline(
-                    new KeyFrame(Duration.millis(msecs), new EventHandler<ActionEvent>() {
-                            @Override
-                            public void handle(ActionEvent t) {
-                                Node node = getChildren().remove(0);
-                                node.setTranslateX(0.0);
-                                node.setTranslateY(0.0);
-                                clearLock();
-                            }
-                        }));
-                
-                ParallelTransition slide = new ParallelTransition(slideNew, slideOld, cleanup);
-                slide.play();
+            Node oldScreen = getChildren().get(0);
+            Node newNode = screen;
+            Node oldNode = oldScreen;
+            Runnable restoreCache = () -> {};
+            if (nav.mode == TransitionMode.SNAPSHOT) {
+                oldNode = snapshot(oldScreen);
+                getChildren().set(0, oldNode);
+                newNode = snapshotIncoming(screen);
+            } else if (nav.mode == TransitionMode.CACHE) {
+                restoreCache = cacheForTransition(oldScreen, screen);
             }
-            currentScreenKey = key;
-            return true;
+            getChildren().add(newNode);
+
+            TranslateTransition slideNew = new TranslateTransition(Duration.millis(msecs), newNode);
+            slideNew.setFromX(fromX1);
+            slideNew.setToX(toX1);
+            slideNew.setFromY(fromY1);
+            slideNew.setToY(toY1);
+
+            TranslateTransition slideOld = new TranslateTransition(Duration.millis(msecs), oldNode);
+            slideOld.setFromX(fromX2);
+            slideOld.setToX(toX2);
+            slideOld.setFromY(fromY2);
+            slideOld.setToY(toY2);
+
+            ParallelTransition slide = new ParallelTransition(slideNew, slideOld);
+            currentScreenKey = nav.key;
+            trimCache(nav.key);
+            final Node movedOld = oldNode;
+            final Node movedNew = newNode;
+            final Runnable restore = restoreCache;
+            animate(nav, slide, () -> {
+                getChildren().remove(movedOld);
+                if (movedNew != screen)
+                    getChildren().remove(movedNew);
+                if (!getChildren().contains(screen))
+                    getChildren().add(0, screen);
+                for (Node n : new Node[] {oldScreen, screen, movedOld, movedNew}) {
+                    n.setTranslateX(0.0);
+                    n.setTranslateY(0.0);
+                }
+                restore.run();
+            });
         }
     }
-
-    public boolean fadeScreen(String key) {
-        return fadeScreen(key, 200);
+    
+    /**
+     * 
+     * Records frame times, tagged with the running transition and its screen
+     * key, while enabled.
+     * 
+     * @param enable    True to start recording, false to stop.
+     */
+    public void setFrameMonitoring(boolean enable) {
+        if (enable)
+            getFrameMonitor().start();
+        else if (frameMonitor != null)
+            frameMonitor.stop();
     }
-
-    public boolean slideScreenRight(String key) {
-        double width = this.getWidth();
-        
-        return slideScreen(key, 500, 0.0-width, 0.0, 0.0, 0.0, 0.0, 0.0, width, 0.0);
+    
+    /**
+     * 
+     * Shows frame statistics over this pane. Enables frame monitoring.
+     * 
+     * @param show  True to show the overlay.
+     */
+    public void setFrameHudVisible(boolean show) {
+        if (show)
+            getFrameMonitor().showHud(this);
+        else if (frameMonitor != null)
+            frameMonitor.hideHud();
     }
-
-    public boolean slideScreenLeft(String key) {
-        double width = this.getWidth();
-        
-        return slideScreen(key, 500, width, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0-width, 0.0);
+    
+    /**
+     * 
+     * @return  The frame monitor of this pane, for reading statistics.
+     */
+    public FrameMonitor getFrameMonitor() {
+        if (frameMonitor == null)
+            frameMonitor = new FrameMonitor();
+        return frameMonitor;
     }
     
-    public boolean slideScreenDown(String key) {
-        double height = this.getHeight();
-        
-        return slideScreen(key, 500, 0.0, 0.0-height, 0.0, 0.0, 0.0, 0.0, 0.0, height);
+    /**
+     * 
+     * Debug mode which logs changes to this pane's scene graph made off the
+     * FX Application Thread.
+     * 
+     * @param enable    True to check.
+     */
+    public void setThreadChecks(boolean enable) {
+        runOnFx(() -> {
+            if (enable && threadChecker == null) {
+                threadChecker = new FxThreadChecker(this);
+                threadChecker.install();
+            } else if (!enable && threadChecker != null) {
+                threadChecker.uninstall();
+                threadChecker = null;
+            }
+        });
     }
-
-    public boolean slideScreenUp(String key) {
-        double height = this.getHeight();
-        
-        return slideScreen(key, 500, 0.0, height, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0-height);
+    
+    /**
+     * 
+     * @return  Number of off thread changes seen while checks are on.
+     */
+    public int getThreadViolations() {
+        return threadChecker == null ? 0 : threadChecker.getViolations();
     }
     
-    public boolean slideScreenDownRight(String key) {
-        double height = this.getHeight();
-        double width = this.getWidth();
-        
-        return slideScreen(key, 3000, 0.0-width, 0.0-height, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    private void tagFrames(String tag) {
+        if (frameMonitor != null)
+            frameMonitor.setTag(tag);
     }
     
-    public boolean defaultTransition(String key) {
-        return flipScreen(key);
+    // Image of a screen as it is laid out now, to animate in its place.
+    private ImageView snapshot(Node screen) {
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        return new ImageView(screen.snapshot(params, null));
+    }
+    
+    // Lays out a screen which is not showing yet at the size of the pane and
+    // returns an image of it. The screen keeps its layout for when it is shown.
+    private ImageView snapshotIncoming(Node screen) {
+        getChildren().add(screen);
+        applyCss();
+        layout();
+        ImageView view = snapshot(screen);
+        getChildren().remove(screen);
+        return view;
+    }
+    
+    // Caches nodes as bitmaps for the transition, returns what puts them back.
+    private Runnable cacheForTransition(Node... nodes) {
+        final boolean[] cached = new boolean[nodes.length];
+        final CacheHint[] hints = new CacheHint[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            cached[i] = nodes[i].isCache();
+            hints[i] = nodes[i].getCacheHint();
+            nodes[i].setCache(true);
+            nodes[i].setCacheHint(CacheHint.SPEED);
+        }
+        return () -> {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].setCache(cached[i]);
+                nodes[i].setCacheHint(hints[i]);
+            }
+        };
     }
     
     public boolean retractPopOut() {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> retractPopOut());
+            return popOutScreen != null && !popOutRetracted;
+        }
+        
         if (popOutScreen == null || popOutRetracted)
             return false;
         
@@ -374,20 +1188,29 @@ public class ScreenMapPane extends StackPane {
                     @Override
                     public void handle(ActionEvent t) {
                         getChildren().remove(popOutScreen);
-                        getScreen(popOutLockScreen).setDisable(false);
+                        lookupScreen(popOutLockScreen, false).setDisable(false);
                         ((Region) popOutScreen).setMaxWidth(Double.MAX_VALUE);
+                        fireLifecycle(popOutKey, popOutScreen, LIFECYCLE_HIDE);
+                        fireLifecycle(popOutLockScreen, lookupScreen(popOutLockScreen, false), LIFECYCLE_SHOW);
                     }
                 }));
         
         SequentialTransition retract = new SequentialTransition();
 
         retract.getChildren().addAll(slide, cleanup);
+        retract.setOnFinished(event -> tagFrames(null));
+        tagFrames("RETRACT " + popOutLockScreen);
         retract.play();
 
         return true;
     }
     
     public boolean popOutScreen(String key, long msecs, double percentOfScreen) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> popOutScreen(key, msecs, percentOfScreen));
+            return true;
+        }
+        
         Node screen = getScreen(key);
 
         if ((percentOfScreen <= 100.0) && (screen instanceof Region)) {
@@ -403,7 +1226,10 @@ public class ScreenMapPane extends StackPane {
                 return false;
             } else {
                 popOutScreen = (Region) screen;
+                popOutKey = key;
                 popOutLockScreen = currentScreenKey;
+                fireLifecycle(popOutLockScreen, getCurrentScreen(), LIFECYCLE_PAUSE);
+                fireLifecycle(key, screen, LIFECYCLE_SHOW);
                 getCurrentScreen().setDisable(true);
                 popOutScreen.setMaxWidth(getWidth() * percentOfScreen / 100);
                 setAlignment(screen, Pos.CENTER_LEFT);
@@ -415,6 +1241,8 @@ public class ScreenMapPane extends StackPane {
                 slide.setFromY(0.0);
                 slide.setToY(0.0);               
 
+                slide.setOnFinished(event -> tagFrames(null));
+                tagFrames("POP_OUT " + key);
                 slide.play();
                 popOutRetracted = false;
                 return true;
@@ -0,0 +1,98 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.HashMap;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.Property;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * 
+ * Values shared by the controller instances of a DynamicScreen, one
+ * property per key. Controllers get the model from DynamicScreen.getModel()
+ * and connect their controls with DynamicScreen.bindModel, which keeps only
+ * the displayed layout's controls bound.
+ * 
+ * Must be used from the JavaFX Application Thread.
+ *
+ * @author Heath Leach
+ */
+public class ScreenModel {
+    
+    private final HashMap<String, Property<?>> properties = new HashMap<>();
+    
+    /**
+     * 
+     * @param key       Name of the value.
+     * @param initial   Value to start with if the key is new.
+     * @return          The property for the key.
+     */
+    public StringProperty stringProperty(String key, String initial) {
+        Property<?> p = properties.get(key);
+        if (p == null) {
+            StringProperty created = new SimpleStringProperty(this, key, initial);
+            properties.put(key, created);
+            return created;
+        }
+        if (!(p instanceof StringProperty))
+            throw new IllegalArgumentException("Model value " + key + " is not a string");
+        return (StringProperty) p;
+    }
+    
+    public StringProperty stringProperty(String key) {
+        return stringProperty(key, null);
+    }
+    
+    /**
+     * 
+     * @param <T>       Type of the value.
+     * @param key       Name of the value.
+     * @param initial   Value to start with if the key is new.
+     * @return          The property for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObjectProperty<T> objectProperty(String key, T initial) {
+        Property<?> p = properties.get(key);
+        if (p == null) {
+            ObjectProperty<T> created = new SimpleObjectProperty<>(this, key, initial);
+            properties.put(key, created);
+            return created;
+        }
+        if (!(p instanceof ObjectProperty))
+            throw new IllegalArgumentException("Model value " + key + " is not an object");
+        return (ObjectProperty<T>) p;
+    }
+    
+    public boolean contains(String key) {
+        return properties.containsKey(key);
+    }
+    
+    public Object getValue(String key) {
+        Property<?> p = properties.get(key);
+        return p == null ? null : p.getValue();
+    }
+}
@@ -0,0 +1,76 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+/**
+ *
+ * Transitions a ScreenMapPane can use to change screens, with their default
+ * durations.
+ * 
+ * @author Heath Leach
+ */
+public enum ScreenTransition {
+    FLIP(0),
+    FADE(200),
+    SLIDE_LEFT(500),
+    SLIDE_RIGHT(500),
+    SLIDE_UP(500),
+    SLIDE_DOWN(500),
+    SLIDE_DOWN_RIGHT(3000);
+    
+    private final long msecs;
+    
+    private ScreenTransition(long msecs) {
+        this.msecs = msecs;
+    }
+    
+    /**
+     * 
+     * @return Default duration of the transition in milliseconds.
+     */
+    public long getDefaultMSecs() {
+        return msecs;
+    }
+    
+    /**
+     * 
+     * @return The transition which undoes this one, used when going back.
+     */
+    public ScreenTransition reverse() {
+        switch (this) {
+            case SLIDE_LEFT:
+                return SLIDE_RIGHT;
+            case SLIDE_RIGHT:
+                return SLIDE_LEFT;
+            case SLIDE_UP:
+                return SLIDE_DOWN;
+            case SLIDE_DOWN:
+                return SLIDE_UP;
+            case SLIDE_DOWN_RIGHT:
+                return FADE;
+            default:
+                return this;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 
+ * Settings with an in memory cache in front of the platform's storage.
+ * 
+ * Values are read from storage once and then served from memory. Use
+ * preload or getStringAsync so the first read of a value is made on the
+ * store's background thread rather than the FX Application Thread. Writes
+ * update memory immediately and are written behind on a background thread
+ * shortly afterwards, so repeated writes to the same key cost one disk write.
+ * Everything is stored as strings, so typed values remain readable through
+ * the plain string accessors. Bytes are stored as Base64.
+ *
+ * @author Heath Leach
+ */
+public class SettingsStore {
+    
+    private static final long WRITE_DELAY_MS = 250;
+    private static final char[] BASE64 = 
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    
+    private final Function<String, String> reader;
+    private final Consumer<Map<String, String>> writer;
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+    
+    // Guarded by this
+    private LinkedHashMap<String, String> dirty = new LinkedHashMap<>();
+    private CompletableFuture<Void> nextWrite = null;
+    
+    /**
+     * 
+     * A group of values which are written to storage together. Each value
+     * is visible in memory as soon as the transaction is committed, but other
+     * threads reading several values at that moment may see some old and
+     * some new.
+     */
+    public class Transaction {
+        private final LinkedHashMap<String, String> values = new LinkedHashMap<>();
+        
+        public Transaction putString(String name, String value) {
+            values.put(name, value);
+            return this;
+        }
+        
+        public Transaction putInt(String name, int value) {
+            return putString(name, Integer.toString(value));
+        }
+        
+        public Transaction putLong(String name, long value) {
+            return putString(name, Long.toString(value));
+        }
+        
+        public Transaction putDouble(String name, double value) {
+            return putString(name, Double.toString(value));
+        }
+        
+        public Transaction putBoolean(String name, boolean value) {
+            return putString(name, Boolean.toString(value));
+        }
+        
+        public Transaction putBytes(String name, byte[] value) {
+            return putString(name, encode(value));
+        }
+        
+        /**
+         * 
+         * @return  Future completed once the values have been written to storage.
+         */
+        public CompletableFuture<Void> commit() {
+            return put(values);
+        }
+    }
+    
+    /**
+     * 
+     * @param reader    Reads a value from storage, returning "" if it is not set.
+     * @param writer    Writes a batch of values to storage. Called on a background thread.
+     */
+    public SettingsStore(Function<String, String> reader, Consumer<Map<String, String>> writer) {
+        this.reader = reader;
+        this.writer = writer;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "settings-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeDirty()));
+    }
+    
+    /**
+     * 
+     * Read values into memory on the store's background thread.
+     * 
+     * @param names Names of the values to read.
+     * @return      Future completed once the values are in memory.
+     */
+    public CompletableFuture<Void> preload(Collection<String> names) {
+        return CompletableFuture.runAsync(() -> {
+            for (String name : names)
+                getString(name);
+        }, executor);
+    }
+    
+    /**
+     * 
+     * @param name  Name of the value.
+     * @return      Future for the value, read on the store's background thread if it is not in memory.
+     */
+    public CompletableFuture<String> getStringAsync(String name) {
+        String value = cache.get(name);
+        if (value != null)
+            return CompletableFuture.completedFuture(value);
+        return CompletableFuture.supplyAsync(() -> getString(name), executor);
+    }
+    
+    /**
+     * 
+     * Reads storage on the calling thread if the value is not in memory yet.
+     * 
+     * @param name  Name of the value.
+     * @return      The value, or "" if it is not set.
+     */
+    public String getString(String name) {
+        return cache.computeIfAbsent(name, n -> {
+            String value = reader.apply(n);
+            return value == null ? "" : value;
+        });
+    }
+    
+    public int getInt(String name, int def) {
+        try {
+            return Integer.parseInt(getString(name));
+        } catch (NumberFormatException ex) {
+            return def;
+        }
+    }
+    
+    public long getLong(String name, long def) {
+        try {
+            return Long.parseLong(getString(name));
+        } catch (NumberFormatException ex) {
+            return def;
+        }
+    }
+    
+    public double getDouble(String name, double def) {
+        try {
+            return Double.parseDouble(getString(name));
+        } catch (NumberFormatException ex) {
+            return def;
+        }
+    }
+    
+    public boolean getBoolean(String name, boolean def) {
+        String value = getString(name);
+        
+        if (value.equalsIgnoreCase("true"))
+            return true;
+        if (value.equalsIgnoreCase("false"))
+            return false;
+        return def;
+    }
+    
+    public byte[] getBytes(String name) {
+        try {
+            return decode(getString(name));
+        } catch (IllegalArgumentException ex) {
+            return new byte[0];
+        }
+    }
+    
+    public void putString(String name, String value) {
+        edit().putString(name, value).commit();
+    }
+    
+    public void putInt(String name, int value) {
+        edit().putInt(name, value).commit();
+    }
+    
+    public void putLong(String name, long value) {
+        edit().putLong(name, value).commit();
+    }
+    
+    public void putDouble(String name, double value) {
+        edit().putDouble(name, value).commit();
+    }
+    
+    public void putBoolean(String name, boolean value) {
+        edit().putBoolean(name, value).commit();
+    }
+    
+    public void putBytes(String name, byte[] value) {
+        edit().putBytes(name, value).commit();
+    }
+    
+    /**
+     * 
+     * @return  A transaction for updating several values at once.
+     */
+    public Transaction edit() {
+        return new Transaction();
+    }
+    
+    /**
+     * 
+     * Write pending values now rather than after the write behind delay.
+     * 
+     * @return  Future completed once pending values have been written.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (nextWrite == null)
+            return CompletableFuture.completedFuture(null);
+        
+        CompletableFuture<Void> write = nextWrite;
+        executor.execute(this::writeDirty);
+        return write;
+    }
+    
+    // java.util.Base64 is not available on older Android releases.
+    private static String encode(byte[] data) {
+        StringBuilder out = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int n = (data[i] & 0xff) << 16;
+            if (i + 1 < data.length)
+                n |= (data[i + 1] & 0xff) << 8;
+            if (i + 2 < data.length)
+                n |= data[i + 2] & 0xff;
+            out.append(BASE64[(n >> 18) & 63]);
+            out.append(BASE64[(n >> 12) & 63]);
+            out.append(i + 1 < data.length ? BASE64[(n >> 6) & 63] : '=');
+            out.append(i + 2 < data.length ? BASE64[n & 63] : '=');
+        }
+        return out.toString();
+    }
+    
+    private static byte[] decode(String text) {
+        if (text.length() % 4 != 0)
+            throw new IllegalArgumentException("Base64 length is not a multiple of 4");
+        
+        int padding = text.endsWith("==") ? 2 : text.endsWith("=") ? 1 : 0;
+        byte[] data = new byte[text.length() / 4 * 3 - padding];
+        int j = 0;
+        for (int i = 0; i < text.length(); i += 4) {
+            int n = 0;
+            for (int k = 0; k < 4; k++) {
+                char c = text.charAt(i + k);
+                int v;
+                if (c == '=' && i + 4 == text.length() && k >= 4 - padding)
+                    v = 0;
+                else if ((v = indexOf(c)) < 0)
+                    throw new IllegalArgumentException("Not Base64: " + c);
+                n = (n << 6) | v;
+            }
+            for (int k = 16; k >= 0 && j < data.length; k -= 8)
+                data[j++] = (byte) (n >> k);
+        }
+        return data;
+    }
+    
+    private static int indexOf(char c) {
+        if (c >= 'A' && c <= 'Z')
+            return c - 'A';
+        if (c >= 'a' && c <= 'z')
+            return c - 'a' + 26;
+        if (c >= '0' && c <= '9')
+            return c - '0' + 52;
+        if (c == '+')
+            return 62;
+        if (c == '/')
+            return 63;
+        return -1;
+    }
+    
+    private synchronized CompletableFuture<Void> put(Map<String, String> values) {
+        cache.putAll(values);
+        dirty.putAll(values);
+        
+        if (nextWrite == null) {
+            nextWrite = new CompletableFuture<>();
+            executor.schedule(this::writeDirty, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        return nextWrite;
+    }
+    
+    private void writeDirty() {
+        LinkedHashMap<String, String> values;
+        CompletableFuture<Void> write;
+        
+        synchronized (this) {
+            if (nextWrite == null)
+                return;
+            values = dirty;
+            write = nextWrite;
+            dirty = new LinkedHashMap<>();
+            nextWrite = null;
+        }
+        
+        try {
+            writer.accept(values);
+            write.complete(null);
+        } catch (RuntimeException ex) {
+            Log.e(ex);
+            write.completeExceptionally(ex);
+        }
+    }
+}
@@ -24,9 +24,12 @@
 package com.my.mobileapp;
 
 import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 
 
@@ -39,18 +42,39 @@ import javafx.scene.paint.Color;
 public class SplashScreen extends StackPane {
    
     Label message = new Label("");
+    ProgressBar progress = new ProgressBar(0);
     
     public void setMessage(String s) {
-        Platform.runLater(()-> {
+        if (Platform.isFxApplicationThread())
             message.setText(s);
-        });
+        else
+            Platform.runLater(()-> {
+                message.setText(s);
+            });
+    }
+    
+    /**
+     * 
+     * @param p     Loading progress from 0 to 1, or a negative value for indeterminate.
+     */
+    public void setProgress(double p) {
+        if (Platform.isFxApplicationThread())
+            progress.setProgress(p);
+        else
+            Platform.runLater(()-> {
+                progress.setProgress(p);
+            });
     }
     
     public SplashScreen() {
         super();
         message.textFillProperty().set(Color.WHITESMOKE);
-        setAlignment(message, Pos.BOTTOM_CENTER);
-        getChildren().add(message);
+        progress.setMaxWidth(Double.MAX_VALUE);
+        VBox bottom = new VBox(4, message, progress);
+        bottom.setAlignment(Pos.BOTTOM_CENTER);
+        bottom.setFillWidth(true);
+        bottom.setPadding(new Insets(8));
+        getChildren().add(bottom);
         
         setStyle("-fx-background-color: #763233;"
                 + "-fx-background-size: contain;"
@@ -0,0 +1,211 @@
+//
+// The MIT License
+//
+// Copyright (c) 2016 Heath Leach
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// 
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+
+package com.my.mobileapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * Records named, nested spans of work during startup and writes them as
+ * Chrome trace event JSON, which chrome://tracing and Perfetto can open.
+ * 
+ * Off unless the apptemplate.trace system property is true or setEnabled is
+ * called. When off, begin() returns a shared span which does nothing, so the
+ * instrumentation costs one volatile read.
+ * 
+ *      try (StartupTrace.Span span = StartupTrace.begin("Load screens")) {
+ *          ...
+ *      }
+ * 
+ * Spans on the same thread nest by time. Safe to use from any thread.
+ * 
+ * @author Heath Leach
+ */
+public class StartupTrace {
+    
+    private static final long origin = System.nanoTime();
+    private static volatile boolean enabled = Boolean.getBoolean("apptemplate.trace");
+    private static final ArrayList<Event> events = new ArrayList<>();
+    private static final HashMap<Long, String> threadNames = new HashMap<>();
+    
+    private static class Event {
+        public final String name;
+        public final long threadId;
+        public final long startMicros;
+        public final long durationMicros;
+        public Event(String name, long threadId, long startMicros, long durationMicros) {
+            this.name = name;
+            this.threadId = threadId;
+            this.startMicros = startMicros;
+            this.durationMicros = durationMicros;
+        }
+    }
+    
+    /**
+     * A span of work, recorded when it is closed.
+     */
+    public static class Span implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private boolean open = true;
+        private Span(String name) {
+            this.name = name;
+            this.start = System.nanoTime();
+        }
+        @Override
+        public void close() {
+            if (open && name != null) {
+                open = false;
+                record(name, start, System.nanoTime());
+            }
+        }
+    }
+    
+    private static final Span NOOP = new Span(null);
+    
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 
+     * @param name  Name of the span.
+     * @return      Span to close when the work is done.
+     */
+    public static Span begin(String name) {
+        if (!enabled)
+            return NOOP;
+        return new Span(name);
+    }
+    
+    /**
+     * 
+     * @param name      Name of the span.
+     * @param detail    Appended to the name, only when tracing is on.
+     * @return          Span to close when the work is done.
+     */
+    public static Span begin(String name, String detail) {
+        if (!enabled)
+            return NOOP;
+        return new Span(name + detail);
+    }
+    
+    private static void record(String name, long start, long end) {
+        Thread t = Thread.currentThread();
+        synchronized (events) {
+            events.add(new Event(name, t.getId(), (start - origin) / 1000, (end - start) / 1000));
+            threadNames.putIfAbsent(t.getId(), t.getName());
+        }
+    }
+    
+    /**
+     * Forget the recorded spans.
+     */
+    public static void clear() {
+        synchronized (events) {
+            events.clear();
+            threadNames.clear();
+        }
+    }
+    
+    /**
+     * 
+     * Write the recorded spans as Chrome trace event JSON.
+     * 
+     * @param file          File to write.
+     * @throws IOException  If the file cannot be written.
+     */
+    public static void write(File file) throws IOException {
+        StringBuilder json = new StringBuilder("{\"traceEvents\":[\n");
+        
+        synchronized (events) {
+            for (Map.Entry<Long, String> t : threadNames.entrySet()) {
+                json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(t.getKey())
+                        .append(",\"args\":{\"name\":\"").append(escape(t.getValue())).append("\"}},\n");
+            }
+            for (Event e : events) {
+                json.append("{\"name\":\"").append(escape(e.name)).append("\",\"ph\":\"X\",\"pid\":1,\"tid\":")
+                        .append(e.threadId).append(",\"ts\":").append(e.startMicros)
+                        .append(",\"dur\":").append(e.durationMicros).append("},\n");
+            }
+        }
+        if (json.charAt(json.length() - 2) == ',')
+            json.setLength(json.length() - 2);
+        json.append("\n],\"displayTimeUnit\":\"ms\"}\n");
+        
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+    }
+    
+    /**
+     * 
+     * Write the recorded spans to a new file in the platform log directory.
+     * 
+     * @return  The file written, or null if tracing is off or it could not be written.
+     */
+    public static File writeToLogDirectory() {
+        String dir = PlatformService.getLogDirectory();
+        if (!enabled || dir == null)
+            return null;
+        
+        File file = new File(dir, "startup-trace-" + System.currentTimeMillis() + ".json");
+        try {
+            write(file);
+            Log.d("Startup trace written to " + file);
+            return file;
+        } catch (IOException ex) {
+            Log.e(ex);
+            return null;
+        }
+    }
+    
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < 0x20)
+                out.append(String.format("\\u%04x", (int) c));
+            else
+                out.append(c);
+        }
+        return out.toString();
+    }
+}
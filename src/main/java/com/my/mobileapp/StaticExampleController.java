@@ -57,7 +57,12 @@ public class StaticExampleController implements Initializable {
 
     @FXML
     public void onClickFlipToMain(MouseEvent event) {
-        AppTemplate.getScreenMap().flipScreen("main");
+        ScreenMapPane screenMap = AppTemplate.getScreenMap();
+        
+        if (screenMap.canGoBack())
+            screenMap.goBack();
+        else
+            screenMap.flipScreen("main");
     }
 
 }